@@ -0,0 +1,121 @@
+package io.github.isagroup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import io.github.isagroup.exceptions.PricingPlanEvaluationException;
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.models.PlanContextManager;
+import io.github.isagroup.models.UserEvaluation;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+
+/**
+ * Evaluates the features of a pricing configuration for many users at once,
+ * e.g. to audit entitlements or to pre-generate tokens in bulk.
+ *
+ * Every evaluation runs against the same {@link PricingSnapshot}, so the
+ * configuration is parsed only once for the whole batch, and every user of a
+ * plan shares the plan context of the snapshot. Users are read in chunks of
+ * {@value #CHUNK_SIZE}, and the users of each chunk are evaluated in parallel
+ * on the common fork/join pool, so at most one chunk is held in memory.
+ */
+public class PricingBatchEvaluator {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final PricingSnapshot pricingSnapshot;
+
+    public PricingBatchEvaluator(PricingSnapshot pricingSnapshot) {
+        this.pricingSnapshot = pricingSnapshot;
+    }
+
+    public PricingBatchEvaluator(PricingContext pricingContext) {
+        this(pricingContext.getPricingSnapshot());
+    }
+
+    /**
+     * Evaluates every feature of the pricing configuration for each of the
+     * given users. Results keep the order of the input stream.
+     * 
+     * @param users stream of (plan name, user context) pairs
+     * @return lazy stream with the evaluation of each user. A user whose
+     *         features cannot be evaluated gets a failed
+     *         {@link UserEvaluation} instead of interrupting the batch.
+     */
+    public Stream<UserEvaluation> evaluate(Stream<? extends Entry<String, Map<String, Object>>> users) {
+
+        Iterator<? extends Entry<String, Map<String, Object>>> iterator = users.iterator();
+
+        Spliterator<List<UserEvaluation>> chunks = new Spliterators.AbstractSpliterator<List<UserEvaluation>>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+
+            @Override
+            public boolean tryAdvance(Consumer<? super List<UserEvaluation>> action) {
+
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+
+                List<Entry<String, Map<String, Object>>> chunk = new ArrayList<>(CHUNK_SIZE);
+
+                while (chunk.size() < CHUNK_SIZE && iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                }
+
+                action.accept(chunk.parallelStream()
+                        .map(user -> evaluate(user.getKey(), user.getValue()))
+                        .collect(Collectors.toList()));
+                return true;
+            }
+        };
+
+        return StreamSupport.stream(chunks, false).flatMap(List::stream).onClose(users::close);
+    }
+
+    /**
+     * Evaluates every feature of the pricing configuration for one user.
+     * 
+     * @param planName    the plan of the user
+     * @param userContext the user context of the user
+     * @return the evaluation of the user
+     */
+    public UserEvaluation evaluate(String planName, Map<String, Object> userContext) {
+
+        Map<String, Object> planContext = pricingSnapshot.getPlanContext(planName);
+
+        if (planContext == null) {
+            return UserEvaluation.failed(planName, userContext, new PricingPlanEvaluationException(
+                    "Error while retrieving plan context! Please check your configuration file or add a plan with the given name"));
+        }
+
+        PlanContextManager planContextManager = new PlanContextManager();
+        planContextManager.setUserContext(userContext);
+        planContextManager.setPlanContext(planContext);
+
+        try {
+            Map<String, FeatureStatus> featureStatuses = PricingEvaluatorUtil
+                    .computeFeatureStatuses(planContextManager, pricingSnapshot, planName);
+            return UserEvaluation.of(planName, userContext, featureStatuses);
+        } catch (PricingPlanEvaluationException e) {
+            return UserEvaluation.failed(planName, userContext, e);
+        } catch (RuntimeException e) {
+            // e.g. an expression that cannot be parsed or evaluated with this
+            // user context
+            return UserEvaluation.failed(planName, userContext, new PricingPlanEvaluationException(
+                    "Error while evaluating the features of the user: " + e.getMessage(), e));
+        }
+    }
+
+    public PricingSnapshot getPricingSnapshot() {
+        return pricingSnapshot;
+    }
+}
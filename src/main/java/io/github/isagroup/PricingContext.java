@@ -1,16 +1,33 @@
 package io.github.isagroup;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.yaml.snakeyaml.error.YAMLException;
 
+import io.github.isagroup.annotations.PricingPlanAware;
+import io.github.isagroup.annotations.PricingPlanAwareScanner;
+import io.github.isagroup.annotations.TransactionPolicy;
 import io.github.isagroup.exceptions.PricingPlanEvaluationException;
 import io.github.isagroup.models.Feature;
 import io.github.isagroup.models.PricingManager;
 import io.github.isagroup.models.UsageLimit;
-import io.github.isagroup.services.yaml.YamlUtils;
+import io.github.isagroup.services.evaluation.EvaluationMode;
+import io.github.isagroup.services.jwt.PricingJwtUtils;
+import io.github.isagroup.services.jwt.TokenFormat;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
 import io.github.isagroup.models.Plan;
 
 /**
@@ -20,6 +37,12 @@ import io.github.isagroup.models.Plan;
 @Component
 public abstract class PricingContext {
 
+    private static final Logger logger = LoggerFactory.getLogger(PricingContext.class);
+
+    private final AtomicReference<SnapshotState> snapshotState = new AtomicReference<>(
+            new SnapshotState(null, false, 0));
+    private final Set<String> requiredFeatures = ConcurrentHashMap.newKeySet();
+
     /**
      * Returns path of the pricing configuration YAML file.
      * This file should be located in the resources folder, and the path should be
@@ -52,6 +75,81 @@ public abstract class PricingContext {
         return 86400000;
     }
 
+    /**
+     * Returns the maximum number of verified pricing JWTs kept in memory, so
+     * tokens that are sent again do not need to be verified again. A value of
+     * zero disables the cache.
+     * 
+     * @return Maximum number of cached tokens
+     */
+    public int getTokenCacheSize() {
+        return 1024;
+    }
+
+    /**
+     * Returns the maximum number of evaluated feature status maps kept in
+     * memory. Users of the same plan whose user context has the same values for
+     * the keys read by the pricing expressions share the same entry. A value of
+     * zero disables the cache.
+     * 
+     * @return Maximum number of cached feature status maps
+     */
+    public int getFeatureStatusCacheSize() {
+        return 1024;
+    }
+
+    /**
+     * Returns the format in which feature statuses are written in the pricing
+     * JWT. {@link TokenFormat#COMPACT} produces much smaller tokens, but they
+     * can only be read with {@link PricingJwtUtils}.
+     * 
+     * @return the {@link TokenFormat} of the pricing JWT
+     */
+    public TokenFormat getTokenFormat() {
+        return TokenFormat.FULL;
+    }
+
+    /**
+     * Returns whether renewed pricing JWTs only carry the feature statuses that
+     * changed since the token presented by the client. Clients rebuild the
+     * complete statuses with {@link PricingJwtUtils#mergeDeltaToken(Map, String)}.
+     * 
+     * @return true to issue delta tokens, false to issue complete tokens
+     */
+    public boolean isDeltaTokenEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns how the expressions of the pricing configuration are run.
+     * {@link EvaluationMode#COMPILED} compiles hot expressions to bytecode and
+     * keeps interpreting the ones that cannot be compiled.
+     * 
+     * @return the {@link EvaluationMode} used to evaluate features
+     */
+    public EvaluationMode getEvaluationMode() {
+        return EvaluationMode.INTERPRETED;
+    }
+
+    /**
+     * Returns the transaction in which {@link PricingPlanAware} methods run.
+     * By default the aspect does not handle transactions, so methods run in
+     * whatever transaction their caller has, and a denied feature only
+     * rolls it back if the exception reaches a transactional boundary. Use
+     * {@link TransactionPolicy#REQUIRED} so the work of a method whose
+     * feature is denied after it runs is always rolled back, or
+     * {@link TransactionPolicy#JOIN_IF_PRESENT} to only roll back the active
+     * transaction. Without a transaction manager methods run without a
+     * transaction. Methods that return a {@link CompletionStage} or a
+     * reactive publisher run outside of the transaction handling of the
+     * aspect, as their work is not bound to the calling thread.
+     * 
+     * @return the {@link TransactionPolicy} of {@link PricingPlanAware} methods
+     */
+    public TransactionPolicy getTransactionPolicy() {
+        return TransactionPolicy.NONE;
+    }
+
     /**
      * This method can be used to determine which users are affected 
      * by the pricing, so a pricing-driven JWT will be only generated 
@@ -77,6 +175,55 @@ public abstract class PricingContext {
      */
     public abstract Map<String, Object> getUserContext();
 
+    /**
+     * Returns the user context without blocking the calling thread. It is used
+     * to check {@link PricingPlanAware} methods that return a
+     * {@link CompletionStage} or a reactive publisher, and is called on the
+     * thread that invokes the method, before the method runs, so
+     * implementations can read thread-bound state such as the security
+     * context. It is also used by methods evaluated after they complete when
+     * {@link #getUserKey()} returns {@code null}, in which case the feature is
+     * evaluated with the usage read before the method ran.
+     * 
+     * By default it calls {@link #getUserContext()}, which blocks the calling
+     * thread, so applications that run those methods on event loops should
+     * override it.
+     * 
+     * @return Stage completed with the user context
+     */
+    public CompletionStage<Map<String, Object>> getUserContextAsync() {
+        return CompletableFuture.completedFuture(this.getUserContext());
+    }
+
+    /**
+     * Returns what identifies the current user, such as its id. It is read on
+     * the thread that invokes a {@link PricingPlanAware} method returning a
+     * {@link CompletionStage} or a reactive publisher, and passed to
+     * {@link #getUserContextAsync(Object)} to read the user context once the
+     * work of the method is done, so the evaluation sees the usage consumed
+     * by the method. By default it returns {@code null}, and the user context
+     * is read with {@link #getUserContextAsync()} before the method runs.
+     * 
+     * @return The key of the current user, or {@code null}
+     */
+    public Object getUserKey() {
+        return null;
+    }
+
+    /**
+     * Returns the user context of the user identified by the given key. It is
+     * called once the work of an asynchronous {@link PricingPlanAware} method
+     * evaluated after it runs is done, possibly on another thread, so it must
+     * not read thread-bound state. Override it along with
+     * {@link #getUserKey()}; by default it calls {@link #getUserContextAsync()}.
+     * 
+     * @param userKey the key returned by {@link #getUserKey()}
+     * @return Stage completed with the user context
+     */
+    public CompletionStage<Map<String, Object>> getUserContextAsync(Object userKey) {
+        return this.getUserContextAsync();
+    }
+
     /**
      * This method should return the plan name of the current user.
      * With this information, the library will be able to build the {@link Plan}
@@ -86,39 +233,223 @@ public abstract class PricingContext {
      */
     public abstract String getUserPlan();
 
+    /**
+     * Returns the plan name of the current user without blocking the calling
+     * thread. Like {@link #getUserContextAsync()}, it is called on the thread
+     * that invokes a {@link PricingPlanAware} method returning a
+     * {@link CompletionStage} or a reactive publisher, before the method
+     * runs. By default it calls {@link #getUserPlan()}, which blocks the
+     * calling thread.
+     * 
+     * @return Stage completed with the current user's plan name
+     */
+    public CompletionStage<String> getUserPlanAsync() {
+        return CompletableFuture.completedFuture(this.getUserPlan());
+    }
+
     /**
      * This method returns the plan context of the current user, represented by a
      * {@link Map}. It's used to evaluate the pricing plan.
+     * The context is built once per {@link PricingSnapshot} and shared by every
+     * user of the plan, so it cannot be modified.
      * 
      * @return current user's plan context
      */
     public final Map<String, Object> getPlanContext() {
+        return this.getPlanContext(this.getUserPlan());
+    }
 
-        Plan plan = this.getPricingManager().getPlans().get(this.getUserPlan());
-        Map<String, Object> planContext = plan.parseToMap();
+    /**
+     * Returns the plan context of the given plan, as {@link #getPlanContext()}
+     * does for the plan of the current user.
+     * 
+     * @param planName the name of a plan of the configuration
+     * @return the plan context
+     */
+    public final Map<String, Object> getPlanContext(String planName) {
 
-        Map<String, Object> planFeaturesContext = plan.getFeatures().entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getValue() != null ? e.getValue().getValue() : e.getValue().getDefaultValue()));
-        planContext.put("features", planFeaturesContext);
+        PricingSnapshot snapshot = this.getPricingSnapshot();
+        Map<String, Object> planContext = snapshot.getPlanContext(planName);
 
-        Map<String, Object> planUsageLimitMap = plan.getUsageLimits().entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getValue() != null ? e.getValue().getValue() : e.getValue().getDefaultValue()));
-        planContext.put("usageLimits", planUsageLimitMap);
+        if (planContext != null) {
+            return planContext;
+        }
 
-        return planContext;
+        // Rebuilt to report why the context of the plan is not available
+        Plan plan = snapshot.getPricingManager().getPlans().get(planName);
+        return plan.toPlanContext();
     }
 
     /**
      * This method returns the {@link PricingManager} object that is being used to
      * evaluate the pricing plan.
+     * The returned object is a copy of the configuration of the current
+     * {@link PricingSnapshot}, so changing it does not affect the
+     * evaluations. Use {@link PricingService} to modify the pricing
+     * configuration.
      * 
      * @return PricingManager object
      */
     public final PricingManager getPricingManager() {
+        return this.getPricingSnapshot().getPricingManager();
+    }
+
+    /**
+     * Returns the snapshot of the pricing configuration that is currently in use.
+     * The configuration file is only parsed the first time this method is called,
+     * or after the snapshot has been invalidated or the configuration file path
+     * has changed. Readers never block: if several threads find no valid
+     * snapshot at the same time, each of them parses the file and only one of
+     * the results is published. If the file cannot be loaded after an
+     * invalidation, the last snapshot loaded from the same path stays in use.
+     * 
+     * @return the current {@link PricingSnapshot}
+     */
+    public final PricingSnapshot getPricingSnapshot() {
+        String configFilePath = this.getConfigFilePath();
+
+        while (true) {
+            SnapshotState current = snapshotState.get();
+            boolean sameFile = current.snapshot != null && current.snapshot.isLoadedFrom(configFilePath);
+
+            if (current.valid && sameFile) {
+                return current.snapshot;
+            }
+
+            PricingSnapshot loaded;
+
+            try {
+                loaded = loadPricingSnapshot(configFilePath);
+            } catch (RuntimeException e) {
+                if (!sameFile) {
+                    throw e;
+                }
+
+                // Kept until the next invalidation, so the file is not parsed
+                // on every call while it is broken
+                if (snapshotState.compareAndSet(current, new SnapshotState(current.snapshot, true, current.generation))) {
+                    logger.warn("The pricing configuration could not be loaded, the previous one is kept: {}",
+                            e.getMessage());
+                    return current.snapshot;
+                }
+                continue;
+            }
+
+            // Rejected if the snapshot was invalidated or replaced meanwhile, as
+            // the file may have changed after it was parsed
+            if (snapshotState.compareAndSet(current, new SnapshotState(loaded, true, current.generation))) {
+                return loaded;
+            }
+        }
+    }
+
+    /**
+     * Parses the configuration file again and atomically replaces the current
+     * snapshot with the result. Evaluations that already hold the previous
+     * snapshot keep using it until they finish.
+     * 
+     * @return the new {@link PricingSnapshot}
+     */
+    public final PricingSnapshot reloadPricingManager() {
+
+        while (true) {
+            SnapshotState current = snapshotState.get();
+            PricingSnapshot loaded = loadPricingSnapshot(this.getConfigFilePath());
+
+            if (snapshotState.compareAndSet(current, new SnapshotState(loaded, true, current.generation + 1))) {
+                return loaded;
+            }
+        }
+    }
+
+    /**
+     * Marks the current snapshot as outdated, so the configuration file will be
+     * parsed again the next time it is needed. The snapshot is kept to be used
+     * if the file cannot be loaded. Snapshots whose parsing started before the
+     * invalidation are never published.
+     */
+    public final void invalidatePricingManager() {
+        snapshotState.updateAndGet(current -> new SnapshotState(current.snapshot, false, current.generation + 1));
+    }
+
+    /**
+     * Registers features the application relies on, such as the ones named in
+     * {@link PricingPlanAware} methods, which are registered on startup by
+     * {@link PricingPlanAwareScanner}. The current pricing configuration and
+     * every configuration loaded afterwards must define them, so a reload that
+     * removes one of them fails and the previous snapshot stays in use.
+     * {@link PricingService} checks them before writing a configuration.
+     * 
+     * @param featureNames names of the required features
+     * @throws PricingPlanEvaluationException if the current configuration does
+     *                                        not define some of the features
+     */
+    public final void requireFeatures(Collection<String> featureNames) {
+        requiredFeatures.addAll(featureNames);
+        checkRequiredFeatures(this.getPricingSnapshot());
+    }
+
+    private PricingSnapshot loadPricingSnapshot(String configFilePath) {
+
+        PricingSnapshot loaded;
+
         try {
-            return YamlUtils.retrieveManagerFromYaml(this.getConfigFilePath());
+            loaded = PricingSnapshot.load(configFilePath, this.getEvaluationMode());
         } catch (YAMLException e) {
             throw new PricingPlanEvaluationException("Error while parsing YAML file");
         }
+
+        checkRequiredFeatures(loaded);
+        return loaded;
+    }
+
+    /**
+     * Checks that a pricing configuration defines the features registered
+     * through {@link #requireFeatures(Collection)}.
+     * 
+     * @param pricingManager a pricing configuration
+     * @throws PricingPlanEvaluationException if the configuration does not
+     *                                        define some of the features
+     */
+    public final void checkRequiredFeatures(PricingManager pricingManager) {
+        checkRequiredFeatures(featureName -> pricingManager.getFeatures() != null
+                && pricingManager.getFeatures().containsKey(featureName));
+    }
+
+    private void checkRequiredFeatures(PricingSnapshot snapshot) {
+        checkRequiredFeatures(featureName -> snapshot.getFrozenPricing().getFeatureOrdinal(featureName) >= 0);
+    }
+
+    private void checkRequiredFeatures(Predicate<String> definesFeature) {
+
+        List<String> missingFeatures = new ArrayList<>();
+
+        for (String featureName : new TreeSet<>(requiredFeatures)) {
+            if (!definesFeature.test(featureName)) {
+                missingFeatures.add(featureName);
+            }
+        }
+
+        if (!missingFeatures.isEmpty()) {
+            throw new PricingPlanEvaluationException(
+                    "The features " + missingFeatures + " do not exist in the current pricing configuration");
+        }
+    }
+
+    /**
+     * Last snapshot loaded, whether it is still up to date, and the number of
+     * times the configuration has been invalidated or reloaded
+     */
+    private static final class SnapshotState {
+
+        private final PricingSnapshot snapshot;
+        private final boolean valid;
+        private final long generation;
+
+        private SnapshotState(PricingSnapshot snapshot, boolean valid, long generation) {
+            this.snapshot = snapshot;
+            this.valid = valid;
+            this.generation = generation;
+        }
     }
 }
@@ -1,9 +1,15 @@
 package io.github.isagroup;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,13 +17,20 @@ import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.stereotype.Component;
 
 import io.github.isagroup.exceptions.PricingPlanEvaluationException;
-import io.github.isagroup.models.Feature;
 import io.github.isagroup.models.FeatureStatus;
 import io.github.isagroup.models.PlanContextManager;
-import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.evaluation.ExpressionCache;
+import io.github.isagroup.services.evaluation.ExpressionDependencies;
+import io.github.isagroup.services.jwt.CompactFeatureCodec;
+import io.github.isagroup.services.jwt.FeatureStatusDelta;
+import io.github.isagroup.services.jwt.FeatureStatusFingerprint;
+import io.github.isagroup.services.jwt.PricingJwtSigner;
 import io.github.isagroup.services.jwt.PricingJwtUtils;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.github.isagroup.services.jwt.PricingToken;
+import io.github.isagroup.services.jwt.TokenFormat;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+import io.github.isagroup.utils.LruCache;
+import io.jsonwebtoken.JwtException;
 
 /**
  * Utility class that provides methods to generate and manage JWT that contains
@@ -32,9 +45,17 @@ public class PricingEvaluatorUtil {
     @Autowired
     private PricingContext pricingContext;
 
+    // Statuses of the delta tokens issued, indexed by their fingerprint, so
+    // tokens presented back can be used as the base of a new delta
+    private final LruCache<String, Map<String, FeatureStatus>> issuedFeatureStatuses;
+
+    private final LruCache<FeatureStatusKey, Map<String, FeatureStatus>> evaluatedFeatureStatuses;
+
     public PricingEvaluatorUtil(PricingContext pricingContext) {
         this.pricingContext = pricingContext;
         this.jwtUtils = new PricingJwtUtils(pricingContext);
+        this.issuedFeatureStatuses = new LruCache<>(pricingContext.getTokenCacheSize());
+        this.evaluatedFeatureStatuses = new LruCache<>(pricingContext.getFeatureStatusCacheSize());
     }
 
     Logger logger = Logger.getLogger(PricingEvaluatorUtil.class.getName());
@@ -48,16 +69,26 @@ public class PricingEvaluatorUtil {
      * @return JWT that contains all the information
      */
     public String generateUserToken() {
+        return generateUserToken(null);
+    }
 
-        Map<String, Object> claims = new HashMap<>();
+    /**
+     * Generate a user authentication JWT that includes the pricing plan evaluation
+     * context, using feature statuses that have already been computed for the
+     * user of the configured {@link PricingContext}.
+     * 
+     * @param evaluatedFeatureStatuses statuses returned by
+     *                                 {@link PricingEvaluatorUtil#computeFeatureStatuses()}
+     *                                 or
+     *                                 {@link PricingEvaluatorUtil#updateFeatureStatuses(Map, Collection)},
+     *                                 or null to evaluate the features
+     * @return JWT that contains all the information
+     */
+    public String generateUserToken(Map<String, FeatureStatus> evaluatedFeatureStatuses) {
 
-        String subject = "Default";
+        Map<String, Object> claims = new HashMap<>();
 
-        if (pricingContext.getUserContext().containsKey("username")) {
-            subject = (String) pricingContext.getUserContext().get("username");
-        } else if (pricingContext.getUserContext().containsKey("user")) {
-            subject = (String) pricingContext.getUserContext().get("user");
-        }
+        String subject = getTokenSubject();
 
         PlanContextManager planContextManager = new PlanContextManager();
         try{
@@ -68,12 +99,11 @@ public class PricingEvaluatorUtil {
         }
 
         if (!pricingContext.userAffectedByPricing()) {
-            return Jwts.builder()
+            return PricingJwtSigner.builder(pricingContext.getJwtSecret())
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + pricingContext.getJwtExpiration()))
-                .signWith(SignatureAlgorithm.HS512, pricingContext.getJwtSecret())
                 .compact();
         }
 
@@ -83,63 +113,267 @@ public class PricingEvaluatorUtil {
             throw new PricingPlanEvaluationException("Error while retrieving plan context! Please check your configuration file or add a plan with the given name");
         }
 
-        PricingManager pricingManager = pricingContext.getPricingManager();
+        PricingSnapshot pricingSnapshot = pricingContext.getPricingSnapshot();
 
-        Map<String, Feature> features = pricingManager.getFeatures();
+        Map<String, FeatureStatus> featureStatuses = evaluatedFeatureStatuses != null ? evaluatedFeatureStatuses
+                : getFeatureStatuses(planContextManager, pricingSnapshot, pricingContext.getUserPlan());
 
-        Map<String, FeatureStatus> featureStatuses = computeFeatureStatuses(planContextManager, features);
-
-        claims.put("features", featureStatuses);
-        claims.put("planContext", planContextManager.getPlanContext());
+        if (pricingContext.getTokenFormat() == TokenFormat.COMPACT) {
+            claims.put(CompactFeatureCodec.CLAIM, CompactFeatureCodec.encode(featureStatuses, pricingSnapshot));
+        } else {
+            claims.put("features", featureStatuses);
+            claims.put("planContext", planContextManager.getPlanContext());
+        }
+        claims.put(FeatureStatusFingerprint.CLAIM, FeatureStatusFingerprint.of(featureStatuses));
 
-        return Jwts.builder()
+        return PricingJwtSigner.builder(pricingContext.getJwtSecret())
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + pricingContext.getJwtExpiration()))
-                .signWith(SignatureAlgorithm.HS512, pricingContext.getJwtSecret())
                 .compact();
     }
 
-    private Map<String, FeatureStatus> computeFeatureStatuses(PlanContextManager planContextManager,
-            Map<String, Feature> features) {
+    /**
+     * Generate a user authentication JWT that only carries the feature statuses
+     * that changed since the pricing token presented by the client. The delta
+     * is computed against the statuses of the presented token, which are taken
+     * from its features or, for delta tokens, from the ones recently issued.
+     * When they cannot be found, a complete token is generated instead.
+     * 
+     * Delta tokens reference the statuses they were computed against by their
+     * fingerprint, and can be merged with them using
+     * {@link PricingJwtUtils#mergeDeltaToken(Map, String)}.
+     * 
+     * @param evaluatedFeatureStatuses statuses returned by
+     *                                 {@link PricingEvaluatorUtil#computeFeatureStatuses()},
+     *                                 or null to evaluate the features
+     * @param presentedToken           the pricing token sent by the client, if
+     *                                 any
+     * @return JWT that contains the changed feature statuses
+     */
+    public String generateUserDeltaToken(Map<String, FeatureStatus> evaluatedFeatureStatuses,
+            String presentedToken) {
+
+        if (!pricingContext.userAffectedByPricing()) {
+            return generateUserToken(evaluatedFeatureStatuses);
+        }
+
+        Map<String, FeatureStatus> featureStatuses = evaluatedFeatureStatuses != null ? evaluatedFeatureStatuses
+                : computeFeatureStatuses();
+        String fingerprint = FeatureStatusFingerprint.of(featureStatuses);
+
+        String baseFingerprint = null;
+        Map<String, FeatureStatus> baseFeatureStatuses = null;
+
+        try {
+            PricingToken baseToken = presentedToken == null ? null : jwtUtils.parseToken(presentedToken);
+            Object claim = baseToken == null ? null : baseToken.getClaim(FeatureStatusFingerprint.CLAIM);
+
+            if (claim instanceof String) {
+                baseFingerprint = (String) claim;
+                baseFeatureStatuses = issuedFeatureStatuses.get(baseFingerprint);
+
+                if (baseFeatureStatuses == null) {
+                    Map<String, FeatureStatus> tokenFeatureStatuses = FeatureStatusDelta
+                            .toFeatureStatuses(baseToken.getFeatures());
+
+                    if (tokenFeatureStatuses != null
+                            && baseFingerprint.equals(FeatureStatusFingerprint.of(tokenFeatureStatuses))) {
+                        baseFeatureStatuses = tokenFeatureStatuses;
+                    }
+                }
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            // An invalid pricing token is replaced by a complete one
+            baseFeatureStatuses = null;
+        }
+
+        issuedFeatureStatuses.put(fingerprint, Collections.unmodifiableMap(new HashMap<>(featureStatuses)));
+
+        if (baseFeatureStatuses == null) {
+            return generateUserToken(featureStatuses);
+        }
+
+        Map<String, Object> claims = new HashMap<>();
+
+        claims.put("userContext", pricingContext.getUserContext());
+        claims.put(FeatureStatusDelta.CLAIM, FeatureStatusDelta.of(baseFeatureStatuses, featureStatuses));
+        claims.put(FeatureStatusDelta.BASE_CLAIM, baseFingerprint);
+        claims.put(FeatureStatusDelta.SNAPSHOT_VERSION_CLAIM, pricingContext.getPricingSnapshot().getVersion());
+        claims.put(FeatureStatusFingerprint.CLAIM, fingerprint);
+
+        return PricingJwtSigner.builder(pricingContext.getJwtSecret())
+                .setClaims(claims)
+                .setSubject(getTokenSubject())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + pricingContext.getJwtExpiration()))
+                .compact();
+    }
+
+    private String getTokenSubject() {
+
+        Map<String, Object> userContext = pricingContext.getUserContext();
+
+        if (userContext.containsKey("username")) {
+            return (String) userContext.get("username");
+        } else if (userContext.containsKey("user")) {
+            return (String) userContext.get("user");
+        }
+
+        return "Default";
+    }
+
+    /**
+     * Evaluates every feature of the pricing configuration for the user of the
+     * configured {@link PricingContext}.
+     * 
+     * Evaluated statuses are cached by plan, pricing snapshot and values of the
+     * user context keys read by the pricing expressions, so users in the same
+     * situation are only evaluated once. Each call returns its own copy of the
+     * statuses, which can be modified without affecting other users.
+     * 
+     * @return the status of each feature, indexed by feature name
+     */
+    public Map<String, FeatureStatus> computeFeatureStatuses() {
+
+        Map<String, FeatureStatus> featureStatuses = getFeatureStatuses(buildPlanContextManager(),
+                pricingContext.getPricingSnapshot(), pricingContext.getUserPlan());
+        Map<String, FeatureStatus> copy = new HashMap<>();
+
+        for (Map.Entry<String, FeatureStatus> featureStatus : featureStatuses.entrySet()) {
+            copy.put(featureStatus.getKey(), featureStatus.getValue().copy());
+        }
+
+        return copy;
+    }
+
+    private Map<String, FeatureStatus> getFeatureStatuses(PlanContextManager planContextManager,
+            PricingSnapshot pricingSnapshot, String planName) {
+
+        FeatureStatusKey key = FeatureStatusKey.of(planName, pricingSnapshot, planContextManager.getUserContext());
+
+        if (key == null || evaluatedFeatureStatuses.getCapacity() == 0) {
+            return computeFeatureStatuses(planContextManager, pricingSnapshot, planName);
+        }
+
+        Map<String, FeatureStatus> featureStatuses = evaluatedFeatureStatuses.get(key);
+
+        if (featureStatuses == null) {
+            featureStatuses = Collections
+                    .unmodifiableMap(computeFeatureStatuses(planContextManager, pricingSnapshot, planName));
+            evaluatedFeatureStatuses.put(key, featureStatuses);
+        }
+
+        return featureStatuses;
+    }
+
+    /**
+     * Updates previously computed feature statuses after some values of the user
+     * context have changed. Only the features whose expressions read one of the
+     * changed keys are evaluated again, using the current user context of the
+     * configured {@link PricingContext}; the status of the rest is reused.
+     * 
+     * The given statuses must have been computed for the same user plan and
+     * pricing configuration.
+     * 
+     * @param featureStatuses        statuses returned by
+     *                               {@link PricingEvaluatorUtil#computeFeatureStatuses()}
+     *                               or by a previous call to this method
+     * @param changedUserContextKeys the user context keys whose values changed
+     * @return the updated status of each feature, indexed by feature name
+     */
+    public Map<String, FeatureStatus> updateFeatureStatuses(Map<String, FeatureStatus> featureStatuses,
+            Collection<String> changedUserContextKeys) {
+
+        PricingSnapshot pricingSnapshot = pricingContext.getPricingSnapshot();
+        Set<String> affectedFeatures = pricingSnapshot.getDependencies().getAffectedFeatures(changedUserContextKeys);
+
+        PlanContextManager planContextManager = null;
+        String planName = pricingContext.getUserPlan();
+
+        Map<String, FeatureStatus> updatedFeatureStatuses = new HashMap<>();
+
+        for (Map.Entry<String, String> feature : pricingSnapshot.getFeatureExpressions().entrySet()) {
+
+            FeatureStatus featureStatus = featureStatuses.get(feature.getKey());
+
+            if (featureStatus == null || affectedFeatures.contains(feature.getKey())) {
+                if (planContextManager == null) {
+                    planContextManager = buildPlanContextManager();
+                }
+                featureStatus = computeFeatureStatus(feature.getKey(), feature.getValue(), planContextManager,
+                        pricingSnapshot, planName);
+            }
+
+            updatedFeatureStatuses.put(feature.getKey(), featureStatus);
+        }
+
+        return updatedFeatureStatuses;
+    }
+
+    private PlanContextManager buildPlanContextManager() {
+
+        PlanContextManager planContextManager = new PlanContextManager();
+        planContextManager.setUserContext(pricingContext.getUserContext());
+
+        try{
+            planContextManager.setPlanContext(pricingContext.getPlanContext());
+        }catch (NullPointerException e){
+            throw new PricingPlanEvaluationException("Error while retrieving plan context! Please check your configuration file or add a plan with the given name");
+        }
+
+        return planContextManager;
+    }
+
+    static Map<String, FeatureStatus> computeFeatureStatuses(PlanContextManager planContextManager,
+            PricingSnapshot pricingSnapshot, String planName) {
 
         Map<String, FeatureStatus> featureStatuses = new HashMap<>();
 
-        for (String featureName : features.keySet()) {
+        for (Map.Entry<String, String> feature : pricingSnapshot.getFeatureExpressions().entrySet()) {
+            featureStatuses.put(feature.getKey(), computeFeatureStatus(feature.getKey(), feature.getValue(),
+                    planContextManager, pricingSnapshot, planName));
+        }
+        return featureStatuses;
+
+    }
+
+    private static FeatureStatus computeFeatureStatus(String featureName, String expression,
+            PlanContextManager planContextManager, PricingSnapshot pricingSnapshot, String planName) {
 
-            FeatureStatus featureStatus = new FeatureStatus();
-            Feature feature = features.get(featureName);
+        ExpressionCache expressions = pricingSnapshot.getExpressions();
+        FeatureStatus featureStatus = new FeatureStatus();
+        Boolean staticEval = pricingSnapshot.getEntitlements().getStaticEvaluation(planName, featureName);
 
-            String expression = features.get(featureName).getExpression();
+        if (staticEval != null) {
+            featureStatus.setEval(staticEval);
+        } else {
             try{
-                Boolean eval = FeatureStatus.computeFeatureEvaluation(expression, planContextManager)
+                Boolean eval = FeatureStatus.computeFeatureEvaluation(expressions.getPricingExpression(expression), planContextManager)
                 .orElseThrow(() -> new PricingPlanEvaluationException("Evaluation was null"));
                 featureStatus.setEval(eval);
             }catch(SpelEvaluationException e){
                 throw new PricingPlanEvaluationException("Error while evaluating the expression of the feature " + featureName + "! Please check the expression");
             }
+        }
 
-            Optional<String> userContextKey = FeatureStatus.computeUserContextVariable(expression);
-
-            if (!userContextKey.isPresent()) {
-                featureStatus.setUsed(null);
-                featureStatus.setLimit(null);
-            } else {
-                featureStatus.setUsed(planContextManager.getUserContext().get(userContextKey.get()));
-                if(feature.getExpression().contains("usageLimits")){
-                    String usageLimitName = feature.getExpression().split("usageLimits")[1].split("[',\"]")[2];
-                    featureStatus.setLimit(((Map<String, Object>)planContextManager.getPlanContext().get("usageLimits")).get(usageLimitName));
-                }else{
-                    featureStatus.setLimit(((Map<String, Object>)planContextManager.getPlanContext().get("features")).get(featureName));
-                }
-
+        ExpressionDependencies dependencies = expressions.getDependencies(expression);
+
+        if (dependencies.getUsedKey() == null) {
+            featureStatus.setUsed(null);
+            featureStatus.setLimit(null);
+        } else {
+            featureStatus.setUsed(planContextManager.getUserContext().get(dependencies.getUsedKey()));
+            if(dependencies.getUsageLimitName() != null){
+                featureStatus.setLimit(((Map<String, Object>)planContextManager.getPlanContext().get("usageLimits")).get(dependencies.getUsageLimitName()));
+            }else{
+                featureStatus.setLimit(((Map<String, Object>)planContextManager.getPlanContext().get("features")).get(featureName));
             }
 
-            featureStatuses.put(featureName, featureStatus);
         }
-        return featureStatuses;
 
+        return featureStatus;
     }
 
     /**
@@ -157,8 +391,17 @@ public class PricingEvaluatorUtil {
      */
     public String addExpressionToToken(String token, String featureId, String expression) {
 
-        Map<String, Map<String, Object>> features = jwtUtils.getFeaturesFromJwtToken(token);
-        String subject = jwtUtils.getSubjectFromJwtToken(token);
+        PricingToken pricingToken = jwtUtils.parseToken(token);
+        String subject = pricingToken.getSubject();
+
+        // The claims of a parsed token are read-only
+        Map<String, Map<String, Object>> features = null;
+        if (pricingToken.getFeatures() != null) {
+            features = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, Object>> feature : pricingToken.getFeatures().entrySet()) {
+                features.put(feature.getKey(), new LinkedHashMap<>(feature.getValue()));
+            }
+        }
 
         try {
             Map<String, Object> feature = (Map<String, Object>) features.get(featureId);
@@ -178,13 +421,68 @@ public class PricingEvaluatorUtil {
         claims.put("userContext", pricingContext.getUserContext());
         claims.put("planContext", pricingContext.getPlanContext());
 
-        return Jwts.builder()
+        return PricingJwtSigner.builder(pricingContext.getJwtSecret())
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + pricingContext.getJwtExpiration()))
-                .signWith(SignatureAlgorithm.HS512, pricingContext.getJwtSecret())
                 .compact();
     }
 
+    /**
+     * Identifies the users whose features evaluate the same: the plan, the
+     * pricing snapshot and the values of the user context keys read by the
+     * expressions of the snapshot.
+     */
+    private static final class FeatureStatusKey {
+
+        private final String planName;
+        private final long snapshotVersion;
+        private final Object[] userContextValues;
+        private final int hash;
+
+        private FeatureStatusKey(String planName, long snapshotVersion, Object[] userContextValues) {
+            this.planName = planName;
+            this.snapshotVersion = snapshotVersion;
+            this.userContextValues = userContextValues;
+            this.hash = Objects.hash(planName, snapshotVersion, Arrays.hashCode(userContextValues));
+        }
+
+        // Returns null when the expressions may read any key of the user context
+        private static FeatureStatusKey of(String planName, PricingSnapshot pricingSnapshot,
+                Map<String, Object> userContext) {
+
+            List<String> userContextKeys = pricingSnapshot.getDependencies().getUserContextKeys();
+
+            if (userContextKeys == null || userContext == null) {
+                return null;
+            }
+
+            Object[] userContextValues = new Object[userContextKeys.size()];
+            for (int i = 0; i < userContextValues.length; i++) {
+                userContextValues[i] = userContext.get(userContextKeys.get(i));
+            }
+
+            return new FeatureStatusKey(planName, pricingSnapshot.getVersion(), userContextValues);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof FeatureStatusKey)) {
+                return false;
+            }
+            FeatureStatusKey key = (FeatureStatusKey) other;
+            return snapshotVersion == key.snapshotVersion && Objects.equals(planName, key.planName)
+                    && Arrays.equals(userContextValues, key.userContextValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
 }
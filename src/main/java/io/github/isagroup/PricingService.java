@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import io.github.isagroup.exceptions.CloneUsageLimitException;
+import io.github.isagroup.exceptions.PricingPlanEvaluationException;
 import io.github.isagroup.models.AddOn;
 import io.github.isagroup.models.Feature;
 import io.github.isagroup.models.Plan;
@@ -54,6 +55,8 @@ public class PricingService {
 
     /**
      * Returns the features defined in the current pricing configuration.
+     * The returned map is a copy of the current pricing snapshot, so
+     * changing it does not affect the configuration.
      * @return the features defined 
      * in the current pricing configuration
      */
@@ -64,6 +67,8 @@ public class PricingService {
 
     /**
      * Returns the usage limits defined in the current pricing configuration.
+     * The returned map is a copy of the current pricing snapshot, so
+     * changing it does not affect the configuration.
      * @return the usage limits defined 
      * in the current pricing configuration
      */
@@ -73,6 +78,8 @@ public class PricingService {
     }
     /**
      * Returns the plans defined in the current pricing configuration.
+     * The returned map is a copy of the current pricing snapshot, so
+     * changing it does not affect the configuration.
      * @return the plans defined 
      * in the current pricing configuration
      */
@@ -82,6 +89,8 @@ public class PricingService {
     }
     /**
      * Returns the add-ons defined in the current pricing configuration.
+     * The returned map is a copy of the current pricing snapshot, so
+     * changing it does not affect the configuration.
      * @return the add-ons defined 
      * in the current pricing configuration
      */
@@ -102,7 +111,7 @@ public class PricingService {
      */
     public Plan getPlanFromName(String planName) {
 
-        PricingManager pricingManager = YamlUtils.retrieveManagerFromYaml(pricingContext.getConfigFilePath());
+        PricingManager pricingManager = pricingContext.getPricingManager();
         Plan plan = pricingManager.getPlans().get(planName);
 
         if (plan == null) {
@@ -139,7 +148,7 @@ public class PricingService {
             PricingValidators.validateAndFormatPlan(pricingManager, plan);
             plans.put(plan.getName(), plan);
             pricingManager.setPlans(plans);
-            YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+            writePricingConfiguration(pricingManager);
         }
     }
 
@@ -168,7 +177,7 @@ public class PricingService {
             pricingManager.setFeatures(features);
         }
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     /**
@@ -214,7 +223,7 @@ public class PricingService {
         pricingManager.setPlans(newPlans);
         pricingManager.setAddOns(newAddOns);
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     /**
@@ -243,7 +252,7 @@ public class PricingService {
 
         pricingManager.setPlans(plans);
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     /**
@@ -255,7 +264,7 @@ public class PricingService {
      */
     @Transactional
     public void setPricingConfiguration(PricingManager pricingManager) {
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     /**
@@ -278,7 +287,7 @@ public class PricingService {
         } else {
             plans.remove(name);
             pricingManager.setPlans(plans);
-            YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+            writePricingConfiguration(pricingManager);
         }
     }
 
@@ -331,7 +340,7 @@ public class PricingService {
             pricingManager.setAddOns(newAddOns);
         }
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     // ------------------------- USAGE LIMIT MANAGEMENT ------------------------- //
@@ -347,7 +356,7 @@ public class PricingService {
      */
     @Transactional
     public void addUsageLimitToConfiguration(UsageLimit usageLimit) {
-        PricingManager pricingManager = pricingContext.getPricingManager();
+        PricingManager pricingManager = YamlUtils.retrieveManagerFromYaml(pricingContext.getConfigFilePath());
 
         Map<String, UsageLimit> usageLimits = pricingManager.getUsageLimits();
 
@@ -363,7 +372,7 @@ public class PricingService {
 
         pricingManager.setUsageLimits(usageLimits);
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
 
     }
 
@@ -411,7 +420,7 @@ public class PricingService {
 
         pricingManager.setUsageLimits(usageLimits);
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     /**
@@ -436,7 +445,7 @@ public class PricingService {
         usageLimits.remove(name);
         pricingManager.setUsageLimits(usageLimits);
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     // ------------------------- ADD ONS MANAGEMENT ------------------------- //
@@ -474,7 +483,7 @@ public class PricingService {
 
         pricingManager.setAddOns(addOns);
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     /**
@@ -507,7 +516,7 @@ public class PricingService {
 
         pricingManager.setAddOns(addOns);
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     /**
@@ -532,11 +541,26 @@ public class PricingService {
         addOns.remove(addOnName);
         pricingManager.setAddOns(addOns);
 
-        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        writePricingConfiguration(pricingManager);
     }
 
     // ------------------------- PRIVATE FUNCTIONS ------------------------- //
 
+    /**
+     * Writes the given {@link PricingManager} to the configuration file and
+     * invalidates the cached snapshot of the {@link PricingContext}, so the
+     * next evaluation sees the new configuration.
+     * @param pricingManager the pricing configuration to persist
+     * @throws PricingPlanEvaluationException if the configuration does not
+     * define a feature required by the application, in which case the file is
+     * not written
+     */
+    private void writePricingConfiguration(PricingManager pricingManager) {
+        pricingContext.checkRequiredFeatures(pricingManager);
+        YamlUtils.writeYaml(pricingManager, pricingContext.getConfigFilePath());
+        pricingContext.invalidatePricingManager();
+    }
+
     private Map<String, UsageLimit> updateUsageLimitsWithUpdatedFeature(String previousName, Feature feature, Map<String, UsageLimit> usageLimits){
         for (UsageLimit usageLimit : usageLimits.values()) {
             if (usageLimit.isLinkedToFeature(previousName)) {
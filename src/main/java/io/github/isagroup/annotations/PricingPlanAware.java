@@ -12,4 +12,16 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface PricingPlanAware {
     public String featureName() default "";
-}
\ No newline at end of file
+
+    /**
+     * Whether the feature is evaluated before the annotated method runs. If
+     * the evaluation fails the method is not invoked at all.
+     *
+     * By default the method runs first and the feature is evaluated
+     * afterwards. Its work is rolled back if the evaluation fails when a
+     * transaction policy is set by
+     * {@link io.github.isagroup.PricingContext#getTransactionPolicy()}.
+     * Keep the default for limits that depend on the result of the method.
+     */
+    public boolean evaluateBeforeProceed() default false;
+}
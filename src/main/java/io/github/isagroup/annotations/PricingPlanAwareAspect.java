@@ -1,43 +1,242 @@
 package io.github.isagroup.annotations;
 
+import java.lang.reflect.Method;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.*;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.SimpleEvaluationContext;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
 
 import io.github.isagroup.PricingContext;
 import io.github.isagroup.exceptions.PricingPlanEvaluationException;
-import io.github.isagroup.models.Feature;
 import io.github.isagroup.models.FeatureStatus;
 import io.github.isagroup.models.PlanContextManager;
-import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
 
 @Aspect
 @Component
 public class PricingPlanAwareAspect {
 
+    private static final boolean REACTOR_PRESENT = ClassUtils.isPresent("reactor.core.publisher.Mono",
+            PricingPlanAwareAspect.class.getClassLoader());
+
     @Autowired
     private PricingContext pricingContext;
 
+    @Autowired(required = false)
+    private PlatformTransactionManager transactionManager;
+
+    // Built once per policy, as the transaction manager does not change
+    private final Map<TransactionPolicy, TransactionTemplate> transactionTemplates = new ConcurrentHashMap<>();
+
+    // Ordinal of the feature of each method in the last snapshot it was
+    // checked with
+    private final Map<Method, FeatureOrdinal> featureOrdinals = new ConcurrentHashMap<>();
+
     @Around("@annotation(pricingPlanAware)")
-    @Transactional(rollbackFor = PricingPlanEvaluationException.class)
     public Object validatePricingPlan(ProceedingJoinPoint joinPoint, PricingPlanAware pricingPlanAware)
             throws Throwable, PricingPlanEvaluationException {
 
-        Object proceed = joinPoint.proceed();
-
         String featureId = pricingPlanAware.featureName();
+        Method method = getMethod(joinPoint);
+        Class<?> returnType = method != null ? method.getReturnType() : getReturnType(joinPoint);
+
+        // The work of asynchronous methods happens after they return, so the
+        // check is composed into their result instead of blocking
+        if (REACTOR_PRESENT && ReactivePricingChecks.isReactive(returnType)) {
+            return ReactivePricingChecks.check(returnType, joinPoint::proceed,
+                    pricingPlanAware.evaluateBeforeProceed(), captureContextsAsync(),
+                    planContextManager -> checkFeature(planContextManager, method, featureId));
+        }
+
+        if (CompletionStage.class.isAssignableFrom(returnType)) {
+            return validateAsync(joinPoint, method, featureId, pricingPlanAware.evaluateBeforeProceed());
+        }
+
+        if (pricingPlanAware.evaluateBeforeProceed()) {
+            checkFeature(method, featureId);
+            return inTransaction(() -> {
+                try {
+                    return joinPoint.proceed();
+                } finally {
+                    // Later checks of the request must see the usage consumed
+                    // by the method
+                    RequestEvaluationContext.invalidateUserContext();
+                }
+            });
+        }
+
+        return inTransaction(() -> {
+            Object proceed = joinPoint.proceed();
+
+            // The method may have changed the usage read by the user context
+            RequestEvaluationContext.invalidateUserContext();
+            checkFeature(method, featureId);
+
+            return proceed;
+        });
+    }
+
+    private static Method getMethod(ProceedingJoinPoint joinPoint) {
+        Signature signature = joinPoint.getSignature();
+        return signature instanceof MethodSignature ? ((MethodSignature) signature).getMethod() : null;
+    }
+
+    private static Class<?> getReturnType(ProceedingJoinPoint joinPoint) {
+        Signature signature = joinPoint.getSignature();
+        return signature instanceof MethodSignature ? ((MethodSignature) signature).getReturnType() : Object.class;
+    }
 
-        // Realizar la evaluación del contexto utilizando el valor de "featureId"
-        Boolean contextEvaluation = evaluateContext(featureId);
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Object> validateAsync(ProceedingJoinPoint joinPoint, Method method, String featureId,
+            boolean evaluateBeforeProceed) throws Throwable {
+
+        // Captured on the calling thread, which is the one bound to the
+        // caller, even if the feature is evaluated after the method completes
+        Supplier<CompletionStage<PlanContextManager>> contexts = captureContextsAsync();
+
+        if (evaluateBeforeProceed) {
+            return toCompletableFuture(contexts.get().thenAccept(
+                    planContextManager -> checkFeature(planContextManager, method, featureId))
+                    .<Object>thenCompose(allowed -> {
+                        try {
+                            return (CompletionStage<Object>) joinPoint.proceed();
+                        } catch (Throwable e) {
+                            return CompletableFuture.failedFuture(e);
+                        }
+                    }));
+        }
+
+        CompletionStage<Object> proceed = (CompletionStage<Object>) joinPoint.proceed();
+
+        if (proceed == null) {
+            return null;
+        }
+
+        return toCompletableFuture(proceed.thenCompose(result -> contexts.get()
+                .thenAccept(planContextManager -> checkFeature(planContextManager, method, featureId))
+                .thenApply(allowed -> result)));
+    }
+
+    // Returned as a CompletableFuture, which satisfies methods declaring
+    // either CompletionStage or CompletableFuture
+    private static CompletableFuture<Object> toCompletableFuture(CompletionStage<Object> stage) {
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+
+        stage.whenComplete((result, exception) -> {
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else {
+                future.complete(result);
+            }
+        });
+
+        return future;
+    }
+
+    private Object inTransaction(Invocation invocation) throws Throwable {
+
+        TransactionPolicy transactionPolicy = pricingContext.getTransactionPolicy();
+
+        if (transactionPolicy == TransactionPolicy.NONE || transactionManager == null) {
+            return invocation.invoke();
+        }
+
+        TransactionTemplate transactionTemplate = transactionTemplates.computeIfAbsent(transactionPolicy,
+                this::createTransactionTemplate);
+
+        // Checked exceptions of the method do not roll the transaction back,
+        // as with @Transactional
+        Throwable[] checkedException = new Throwable[1];
+
+        Object result = transactionTemplate.execute(status -> {
+            try {
+                return invocation.invoke();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                checkedException[0] = e;
+                return null;
+            }
+        });
+
+        if (checkedException[0] != null) {
+            throw checkedException[0];
+        }
+
+        return result;
+    }
+
+    private TransactionTemplate createTransactionTemplate(TransactionPolicy transactionPolicy) {
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(transactionPolicy == TransactionPolicy.REQUIRED
+                ? TransactionDefinition.PROPAGATION_REQUIRED
+                : TransactionDefinition.PROPAGATION_SUPPORTS);
+
+        return transactionTemplate;
+    }
+
+    private void checkFeature(Method method, String featureId) {
+        checkEvaluation(featureId, evaluateContext(method, featureId));
+    }
+
+    private void checkFeature(PlanContextManager planContextManager, Method method, String featureId) {
+        checkEvaluation(featureId,
+                evaluateFeature(pricingContext.getPricingSnapshot(), planContextManager, method, featureId));
+    }
+
+    /**
+     * Captures the user of an asynchronous method. It must be called on the
+     * thread that invokes the method. The plan and the user key are read
+     * right away, and the returned supplier reads the user context of the
+     * key each time the feature is checked, so a check made after the method
+     * completes sees the usage it consumed. Without a user key the user
+     * context is read right away too.
+     */
+    private Supplier<CompletionStage<PlanContextManager>> captureContextsAsync() {
+
+        CompletionStage<String> userPlan;
+        CompletionStage<Map<String, Object>> userContext;
+        Object userKey;
+
+        try {
+            userPlan = pricingContext.getUserPlanAsync();
+            userKey = pricingContext.getUserKey();
+            userContext = userKey == null ? pricingContext.getUserContextAsync() : null;
+        } catch (RuntimeException e) {
+            return () -> CompletableFuture.failedFuture(e);
+        }
+
+        return () -> {
+            CompletionStage<Map<String, Object>> resolvingUserContext;
+
+            try {
+                resolvingUserContext = userContext != null ? userContext
+                        : pricingContext.getUserContextAsync(userKey);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+
+            return resolvingUserContext.thenCombine(userPlan,
+                    (resolvedUserContext, resolvedUserPlan) -> createPlanContextManager(() -> resolvedUserContext,
+                            () -> pricingContext.getPlanContext(resolvedUserPlan)));
+        };
+    }
+
+    private static void checkEvaluation(String featureId, Boolean contextEvaluation) {
 
         if (contextEvaluation == null) {
             contextEvaluation = false;
@@ -46,85 +245,83 @@ public class PricingPlanAwareAspect {
         if (!contextEvaluation) {
             throw new PricingPlanEvaluationException("You have reached the limit of the feature: " + featureId);
         }
+    }
+
+    private Boolean evaluateContext(Method method, String featureName) {
 
-        return proceed;
+        PricingSnapshot pricingSnapshot = pricingContext.getPricingSnapshot();
+        RequestEvaluationContext requestContext = RequestEvaluationContext.current();
+
+        if (requestContext == null) {
+            return evaluateFeature(pricingSnapshot,
+                    createPlanContextManager(pricingContext::getUserContext, pricingContext::getPlanContext),
+                    method, featureName);
+        }
+
+        return requestContext.evaluate(pricingSnapshot, featureName,
+                () -> createPlanContextManager(pricingContext::getUserContext, pricingContext::getPlanContext),
+                planContextManager -> evaluateFeature(pricingSnapshot, planContextManager, method, featureName));
     }
 
-    private Boolean evaluateContext(String featureName) {
+    private static PlanContextManager createPlanContextManager(Supplier<Map<String, Object>> userContext,
+            Supplier<Map<String, Object>> planContext) {
 
         PlanContextManager planContextManager = new PlanContextManager();
         
         try{
-            planContextManager.setUserContext(pricingContext.getUserContext());
-            planContextManager.setPlanContext(pricingContext.getPlanContext());
+            planContextManager.setUserContext(userContext.get());
+            planContextManager.setPlanContext(planContext.get());
         }catch(NullPointerException e){
             throw new PricingPlanEvaluationException("The pricing context is null. Please, chech the path to the configuration file.");
         }
 
-        PricingManager pricingManager = pricingContext.getPricingManager();
-
-        Map<String, Feature> features = pricingManager.getFeatures();
-        Feature feature = features.get(featureName);
-
-        if (feature == null) {
-            throw new PricingPlanEvaluationException("The feature " + featureName + " does not exist in the current pricing configuration");
-        }
+        return planContextManager;
+    }
 
-        FeatureStatus featureStatus = new FeatureStatus();
+    private Boolean evaluateFeature(PricingSnapshot pricingSnapshot, PlanContextManager planContextManager,
+            Method method, String featureName) {
 
-        String expression;
+        int featureOrdinal = getFeatureOrdinal(pricingSnapshot, method, featureName);
 
-        if (feature.getServerExpression() != null) {
-            expression = feature.getServerExpression();
-        } else {
-            expression = feature.getExpression();
+        if (featureOrdinal < 0) {
+            throw new PricingPlanEvaluationException("The feature " + featureName + " does not exist in the current pricing configuration");
         }
 
-        Boolean eval = FeatureStatus.computeFeatureEvaluation(expression, planContextManager)
+        return FeatureStatus.computeFeatureEvaluation(pricingSnapshot.getServerExpression(featureOrdinal),
+                planContextManager)
                 .orElseThrow(() -> new PricingPlanEvaluationException("Evaluation was null"));
-        featureStatus.setEval(eval);
+    }
 
-        Optional<String> userContextKey = FeatureStatus.computeUserContextVariable(expression);
+    private int getFeatureOrdinal(PricingSnapshot pricingSnapshot, Method method, String featureName) {
 
-        if (!userContextKey.isPresent()) {
-            featureStatus.setUsed(null);
-            featureStatus.setLimit(null);
-        } else {
-            featureStatus.setUsed(planContextManager.getUserContext().get(userContextKey.get()));
-            featureStatus.setLimit(planContextManager.getPlanContext().get(featureName));
+        if (method == null) {
+            return pricingSnapshot.getFrozenPricing().getFeatureOrdinal(featureName);
         }
 
-        return featureStatus.getEval();
-
-        // Map<String, Object> userContext = pricingContext.getUserContext();
-        // Map<String, Object> planContext = pricingContext.getPlanContext();
-        // Map<String, Feature> evaluationContext = pricingContext.getFeatures();
-
-        // PlanContextManager planContextManager = new PlanContextManager();
-
-        // planContextManager.setUserContext(userContext);
-        // planContextManager.setPlanContext(planContext);
+        FeatureOrdinal featureOrdinal = featureOrdinals.get(method);
 
-        // try {
-        //     String expression = evaluationContext.get(featureId).getServerExpression();
+        if (featureOrdinal == null || featureOrdinal.snapshotVersion != pricingSnapshot.getVersion()) {
+            featureOrdinal = new FeatureOrdinal(pricingSnapshot.getVersion(),
+                    pricingSnapshot.getFrozenPricing().getFeatureOrdinal(featureName));
+            featureOrdinals.put(method, featureOrdinal);
+        }
 
-        //     if (expression == null) {
-        //         expression = evaluationContext.get(featureId).getExpression();
-        //     }
+        return featureOrdinal.ordinal;
+    }
 
-        //     if (!expression.trim().equals("")) {
+    private static final class FeatureOrdinal {
 
-        //         ExpressionParser parser = new SpelExpressionParser();
-        //         EvaluationContext context = SimpleEvaluationContext.forReadOnlyDataBinding().build();
+        private final long snapshotVersion;
+        private final int ordinal;
 
-        //         return parser.parseExpression(expression).getValue(context, planContextManager, Boolean.class);
-        //     } else {
-        //         return false;
-        //     }
-        // } catch (NullPointerException e) {
-        //     throw new PricingPlanEvaluationException(
-        //             "The feature " + featureId + " does not exist in the current pricing configuration");
-        // }
+        private FeatureOrdinal(long snapshotVersion, int ordinal) {
+            this.snapshotVersion = snapshotVersion;
+            this.ordinal = ordinal;
+        }
+    }
 
+    @FunctionalInterface
+    interface Invocation {
+        Object invoke() throws Throwable;
     }
-}
\ No newline at end of file
+}
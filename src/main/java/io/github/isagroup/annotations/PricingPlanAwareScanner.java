@@ -0,0 +1,87 @@
+package io.github.isagroup.annotations;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import io.github.isagroup.PricingContext;
+import io.github.isagroup.exceptions.PricingPlanEvaluationException;
+
+/**
+ * Finds the features named in the {@link PricingPlanAware} methods of every
+ * bean once the application has started, and requires the pricing
+ * configuration to define them through
+ * {@link PricingContext#requireFeatures(java.util.Collection)}. A feature
+ * name that does not exist makes the application fail on startup instead of
+ * on the first call to the method, and later reloads of the configuration
+ * that remove it are rejected.
+ */
+@Component
+public class PricingPlanAwareScanner implements SmartInitializingSingleton, BeanFactoryAware {
+
+    @Autowired
+    private PricingContext pricingContext;
+
+    private ListableBeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (beanFactory instanceof ListableBeanFactory) {
+            this.beanFactory = (ListableBeanFactory) beanFactory;
+        }
+    }
+
+    /**
+     * @throws PricingPlanEvaluationException if a {@link PricingPlanAware}
+     *                                        method names a feature that
+     *                                        does not exist
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+
+        if (beanFactory == null) {
+            return;
+        }
+
+        Set<String> featureNames = new TreeSet<>();
+
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            Class<?> beanType = beanFactory.getType(beanName, false);
+
+            if (beanType != null) {
+                featureNames.addAll(findFeatureNames(beanType));
+            }
+        }
+
+        pricingContext.requireFeatures(featureNames);
+    }
+
+    /**
+     * @param type a class, or a proxy of it
+     * @return The feature names of the {@link PricingPlanAware} methods of the
+     *         class and its superclasses
+     */
+    public static Set<String> findFeatureNames(Class<?> type) {
+
+        Set<String> featureNames = new TreeSet<>();
+
+        ReflectionUtils.doWithMethods(ClassUtils.getUserClass(type), method -> {
+            PricingPlanAware pricingPlanAware = method.getAnnotation(PricingPlanAware.class);
+
+            if (pricingPlanAware != null) {
+                featureNames.add(pricingPlanAware.featureName());
+            }
+        });
+
+        return featureNames;
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.isagroup.annotations;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+
+import io.github.isagroup.annotations.PricingPlanAwareAspect.Invocation;
+import io.github.isagroup.models.PlanContextManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Composes the check of a {@link PricingPlanAware} method into the
+ * {@link Mono} or {@link Flux} it returns, so the feature is evaluated when
+ * the publisher is subscribed instead of blocking the caller. The user is
+ * captured by the aspect when the method is called, on the calling thread.
+ *
+ * When the feature is evaluated after the method, the elements of a
+ * {@link Flux} are buffered until it completes and only emitted if the
+ * feature is allowed, as a synchronous method does not return its result
+ * when it is denied. Evaluate the feature before proceeding for unbounded
+ * or long-lived fluxes.
+ *
+ * Only loaded by {@link PricingPlanAwareAspect} when Reactor is on the
+ * classpath.
+ */
+final class ReactivePricingChecks {
+
+    private ReactivePricingChecks() {
+    }
+
+    static boolean isReactive(Class<?> returnType) {
+        return Mono.class.isAssignableFrom(returnType) || Flux.class.isAssignableFrom(returnType);
+    }
+
+    /**
+     * @param returnType            the declared return type of the method,
+     *                              a {@link Mono} or a {@link Flux}
+     * @param invocation            invokes the method
+     * @param evaluateBeforeProceed whether the feature is checked before the
+     *                              method is invoked
+     * @param contexts              resolves the contexts of the caller each
+     *                              time the feature is checked
+     * @param check                 checks the feature with the contexts,
+     *                              failing if it is denied
+     * @return The publisher to return to the caller
+     */
+    @SuppressWarnings("unchecked")
+    static Object check(Class<?> returnType, Invocation invocation, boolean evaluateBeforeProceed,
+            Supplier<CompletionStage<PlanContextManager>> contexts, Consumer<PlanContextManager> check)
+            throws Throwable {
+
+        Mono<Void> checkMono = Mono.defer(() -> Mono.fromCompletionStage(contexts.get())).doOnNext(check).then();
+
+        if (evaluateBeforeProceed) {
+            if (Mono.class.isAssignableFrom(returnType)) {
+                return checkMono.then(Mono.defer(() -> Mono.from(invoke(invocation))));
+            }
+            return checkMono.thenMany(Flux.defer(() -> invoke(invocation)));
+        }
+
+        Object proceed = invocation.invoke();
+
+        if (proceed instanceof Mono) {
+            return ((Mono<Object>) proceed)
+                    .flatMap(result -> checkMono.thenReturn(result))
+                    .switchIfEmpty(checkMono.then(Mono.empty()));
+        }
+
+        if (proceed instanceof Flux) {
+            // Held back until the feature is allowed, so a denied flux
+            // emits no element
+            return ((Flux<Object>) proceed).collectList()
+                    .flatMapMany(results -> checkMono.thenMany(Flux.fromIterable(results)));
+        }
+
+        return proceed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Publisher<Object> invoke(Invocation invocation) {
+        try {
+            Object proceed = invocation.invoke();
+            return proceed != null ? (Publisher<Object>) proceed : Mono.empty();
+        } catch (Throwable e) {
+            return Mono.error(e);
+        }
+    }
+}
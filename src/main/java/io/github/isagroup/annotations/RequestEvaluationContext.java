@@ -0,0 +1,134 @@
+package io.github.isagroup.annotations;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import io.github.isagroup.models.PlanContextManager;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+
+/**
+ * Evaluation state shared by every {@link PricingPlanAware} method reached
+ * while handling the same request.
+ *
+ * The user context and the plan context are resolved once, and the
+ * evaluation of each feature is remembered, until the user context is
+ * invalidated or the pricing snapshot changes. The aspect invalidates it each
+ * time a {@link PricingPlanAware} method returns, since the method may have
+ * consumed usage, so checks that are not separated by an invocation, such as
+ * the ones of nested methods, share it. The state is stored as an
+ * attribute of the request bound to the current thread by Spring, so it works
+ * the same whether requests are handled by platform or virtual threads.
+ * Outside of a request nothing is remembered and every evaluation resolves
+ * the contexts again.
+ */
+public final class RequestEvaluationContext {
+
+    private static final String ATTRIBUTE_NAME = RequestEvaluationContext.class.getName();
+
+    private final Map<String, Boolean> evaluations = new ConcurrentHashMap<>();
+    private PlanContextManager planContextManager;
+    private long snapshotVersion;
+
+    private RequestEvaluationContext() {
+    }
+
+    /**
+     * Discards the user context and the feature evaluations remembered for
+     * the current request. Call it after changing data read by
+     * {@link io.github.isagroup.PricingContext#getUserContext()}, so the next
+     * evaluation of the request sees the change.
+     */
+    public static void invalidateUserContext() {
+        RequestEvaluationContext context = current(false);
+
+        if (context != null) {
+            context.invalidate();
+        }
+    }
+
+    /**
+     * @return The context of the request bound to the current thread, created
+     *         if needed, or {@code null} if there is no such request
+     */
+    static RequestEvaluationContext current() {
+        return current(true);
+    }
+
+    private static RequestEvaluationContext current(boolean create) {
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+        if (attributes == null) {
+            return null;
+        }
+
+        Object context = attributes.getAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+
+        if (context != null || !create) {
+            return (RequestEvaluationContext) context;
+        }
+
+        synchronized (attributes) {
+            context = attributes.getAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+
+            if (context == null) {
+                context = new RequestEvaluationContext();
+                attributes.setAttribute(ATTRIBUTE_NAME, context, RequestAttributes.SCOPE_REQUEST);
+            }
+        }
+
+        return (RequestEvaluationContext) context;
+    }
+
+    /**
+     * Returns the remembered evaluation of a feature, evaluating it with the
+     * contexts of the request the first time.
+     *
+     * @param snapshot           the pricing snapshot in use
+     * @param featureName        the name of the feature
+     * @param planContextManager resolves the user and plan contexts
+     * @param evaluation         evaluates the feature with the contexts
+     * @return The evaluation of the feature
+     */
+    Boolean evaluate(PricingSnapshot snapshot, String featureName, Supplier<PlanContextManager> planContextManager,
+            Function<PlanContextManager, Boolean> evaluation) {
+
+        PlanContextManager contexts = getPlanContextManager(snapshot, planContextManager);
+        Boolean eval = evaluations.get(featureName);
+
+        if (eval == null) {
+            eval = evaluation.apply(contexts);
+
+            // Not remembered if the contexts were invalidated meanwhile
+            synchronized (this) {
+                if (this.planContextManager == contexts) {
+                    evaluations.put(featureName, eval);
+                }
+            }
+        }
+
+        return eval;
+    }
+
+    private synchronized PlanContextManager getPlanContextManager(PricingSnapshot snapshot,
+            Supplier<PlanContextManager> planContextManager) {
+
+        if (this.planContextManager == null || snapshotVersion != snapshot.getVersion()) {
+            evaluations.clear();
+            this.planContextManager = planContextManager.get();
+            this.snapshotVersion = snapshot.getVersion();
+        }
+
+        return this.planContextManager;
+    }
+
+    synchronized void invalidate() {
+        evaluations.clear();
+        planContextManager = null;
+    }
+}
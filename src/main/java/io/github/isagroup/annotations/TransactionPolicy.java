@@ -0,0 +1,29 @@
+package io.github.isagroup.annotations;
+
+/**
+ * Transaction in which {@link PricingPlanAwareAspect} runs the
+ * {@link PricingPlanAware} methods. The evaluation of the feature never needs
+ * a transaction; the policy only decides whether the work of a method is
+ * rolled back when the feature is evaluated afterwards and denied.
+ */
+public enum TransactionPolicy {
+    /**
+     * Methods run without any transaction handling by the aspect. This is
+     * the default policy.
+     */
+    NONE,
+    /**
+     * Methods join the transaction that is already active, which is rolled
+     * back if the feature is denied. No transaction is started otherwise, so
+     * the work of a method called outside of a transaction is kept even if
+     * its feature is denied afterwards.
+     */
+    JOIN_IF_PRESENT,
+    /**
+     * Methods join the active transaction or start a new one, which is rolled
+     * back if the feature is denied. The feature is evaluated inside the
+     * transaction, so calls outside of one borrow a connection for the
+     * whole method.
+     */
+    REQUIRED
+}
@@ -0,0 +1,11 @@
+package io.github.isagroup.exceptions;
+
+public class MalformedTokenException extends IllegalArgumentException {
+    public MalformedTokenException(String message) {
+        super(message);
+    }
+
+    public MalformedTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
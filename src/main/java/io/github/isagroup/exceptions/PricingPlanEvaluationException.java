@@ -4,4 +4,8 @@ public class PricingPlanEvaluationException extends RuntimeException {
     public PricingPlanEvaluationException(String message) {
         super(message);
     }
+
+    public PricingPlanEvaluationException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
\ No newline at end of file
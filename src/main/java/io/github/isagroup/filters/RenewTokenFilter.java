@@ -14,7 +14,10 @@ import org.springframework.beans.factory.annotation.Value;
 
 import io.github.isagroup.PricingContext;
 import io.github.isagroup.PricingEvaluatorUtil;
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.services.jwt.FeatureStatusFingerprint;
 import io.github.isagroup.services.jwt.PricingJwtUtils;
+import io.jsonwebtoken.JwtException;
 
 import java.util.Map;
 
@@ -40,18 +43,17 @@ public class RenewTokenFilter extends OncePerRequestFilter {
 		String authJwt = parseAuthJwt(request);
 
 		if (authJwt != null && jwtUtils.validateJwtToken(authJwt) && pricingContext.userAffectedByPricing()) {
-			
-			String newToken = pricingEvaluatorUtil.generateUserToken();
-
-			String newTokenFeatures = jwtUtils.getFeaturesFromJwtToken(newToken).toString();
-			String jwtFeatures = "";
-			
-			if (pricingJwt != null && !pricingJwt.equals("null")) jwtFeatures = jwtUtils.getFeaturesFromJwtToken(pricingJwt).toString();
-			
-			if (!newTokenFeatures.equals(jwtFeatures)) {
-				response.addHeader("Pricing-Token", newToken);
+
+			Map<String, FeatureStatus> featureStatuses = pricingEvaluatorUtil.computeFeatureStatuses();
+
+			// Only sign a new token if the features of the current one are out of date
+			if (!FeatureStatusFingerprint.of(featureStatuses).equals(parseFeaturesFingerprint(pricingJwt))) {
+				String renewedJwt = pricingContext.isDeltaTokenEnabled()
+						? pricingEvaluatorUtil.generateUserDeltaToken(featureStatuses, pricingJwt)
+						: pricingEvaluatorUtil.generateUserToken(featureStatuses);
+				response.addHeader("Pricing-Token", renewedJwt);
 			}
-			
+
 		}
 
 		filterChain.doFilter(request, response);
@@ -67,6 +69,21 @@ public class RenewTokenFilter extends OncePerRequestFilter {
 		return null;
 	}
 
+	private String parseFeaturesFingerprint(String pricingJwt) {
+
+		if (pricingJwt == null || pricingJwt.equals("null")) {
+			return null;
+		}
+
+		try {
+			Object fingerprint = jwtUtils.parseToken(pricingJwt).getClaim(FeatureStatusFingerprint.CLAIM);
+			return fingerprint instanceof String ? (String) fingerprint : null;
+		} catch (JwtException | IllegalArgumentException e) {
+			// An invalid pricing token is replaced by a new one
+			return null;
+		}
+	}
+
 	private String parseAuthJwt(HttpServletRequest request) {
 		String headerAuth = request.getHeader("Authorization");
 
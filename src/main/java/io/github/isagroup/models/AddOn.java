@@ -1,5 +1,6 @@
 package io.github.isagroup.models;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,26 @@ public class AddOn {
     private Map<String, UsageLimit> usageLimits;
     private Map<String, UsageLimit> usageLimitsExtensions;
 
+    /**
+     * Returns a copy of this add-on, with copies of its features, usage limits
+     * and usage limit extensions, that can be modified without affecting it.
+     * 
+     * @return A copy of this add-on
+     */
+    public AddOn copy() {
+        AddOn copy = new AddOn();
+        copy.name = name;
+        copy.availableFor = availableFor == null ? null : new ArrayList<>(availableFor);
+        copy.price = price;
+        copy.monthlyPrice = monthlyPrice;
+        copy.annualPrice = annualPrice;
+        copy.unit = unit;
+        copy.features = Feature.copyFeatures(features);
+        copy.usageLimits = UsageLimit.copyUsageLimits(usageLimits);
+        copy.usageLimitsExtensions = UsageLimit.copyUsageLimits(usageLimitsExtensions);
+        return copy;
+    }
+
     public Map<String, Object> serializeAddOn() {
         Map<String, Object> serializedAddOn = new LinkedHashMap<>();
 
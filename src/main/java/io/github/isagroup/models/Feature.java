@@ -1,11 +1,9 @@
 package io.github.isagroup.models;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import io.github.isagroup.exceptions.CloneFeatureException;
@@ -19,7 +17,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @EqualsAndHashCode
-public abstract class Feature implements Serializable {
+public abstract class Feature implements Serializable, Cloneable {
     protected String name;
     protected String description;
     protected ValueType valueType;
@@ -68,20 +66,57 @@ public abstract class Feature implements Serializable {
 
     public abstract Map<String, Object> serializeFeature();
 
-    public static Feature cloneFeature(Feature original) throws CloneFeatureException {
+    /**
+     * Returns a copy of this feature that can be modified without affecting
+     * it. As in serialized copies, the value is not copied.
+     * 
+     * @return A copy of this feature
+     */
+    public Feature copy() {
         try {
-            // Serializa el objeto original en un flujo de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-            objectOutputStream.writeObject(original);
+            Feature copy = (Feature) super.clone();
+            copy.defaultValue = copyValue(defaultValue);
+            copy.value = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new CloneFeatureException("Error cloning feature");
+        }
+    }
 
-            // Deserializa el objeto desde el flujo de bytes, creando una copia
-            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
-            ObjectInputStream objectInputStream = new ObjectInputStream(byteArrayInputStream);
+    /**
+     * Copies list values, so a copy of a feature or a usage limit does not
+     * share them with the original. Other values are returned as they are.
+     */
+    static Object copyValue(Object value) {
+        return value instanceof List ? new ArrayList<>((List<?>) value) : value;
+    }
 
-            return (Feature) objectInputStream.readObject();
-        } catch (Exception e) {
-            throw new CloneFeatureException("Error cloning feature");
+    /**
+     * Copies the features of a plan, an add-on or a pricing, keeping their
+     * values, so the copy does not share any feature with the original.
+     */
+    static Map<String, Feature> copyFeatures(Map<String, Feature> features) {
+
+        if (features == null) {
+            return null;
+        }
+
+        Map<String, Feature> copies = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Feature> feature : features.entrySet()) {
+            Feature copy = cloneFeature(feature.getValue());
+
+            if (copy != null) {
+                copy.value = copyValue(feature.getValue().value);
+            }
+
+            copies.put(feature.getKey(), copy);
         }
+
+        return copies;
+    }
+
+    public static Feature cloneFeature(Feature original) throws CloneFeatureException {
+        return original == null ? null : original.copy();
     }
 }
@@ -3,10 +3,12 @@ package io.github.isagroup.models;
 import java.util.Optional;
 
 import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.SimpleEvaluationContext;
 
+import io.github.isagroup.services.evaluation.PricingExpression;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -14,24 +16,60 @@ import lombok.Setter;
 @Setter
 public class FeatureStatus {
 
+    private static final ExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
+    private static final EvaluationContext EVALUATION_CONTEXT = SimpleEvaluationContext.forReadOnlyDataBinding()
+            .build();
+
     private Boolean eval;
     private Object used;
     private Object limit;
 
+    /**
+     * @return A new status with the same evaluation, usage and limit
+     */
+    public FeatureStatus copy() {
+
+        FeatureStatus featureStatus = new FeatureStatus();
+        featureStatus.setEval(eval);
+        featureStatus.setUsed(used);
+        featureStatus.setLimit(limit);
+
+        return featureStatus;
+    }
+
     public static Optional<Boolean> computeFeatureEvaluation(String expression, PlanContextManager planContextManager) {
-        ExpressionParser expressionParser = new SpelExpressionParser();
-        EvaluationContext evaluationContext = SimpleEvaluationContext.forReadOnlyDataBinding().build();
 
         if (expression.trim().isEmpty()) {
             return Optional.of(false);
         }
 
-        return Optional.ofNullable(expressionParser.parseExpression(expression).getValue(evaluationContext,
-                planContextManager,
+        return computeFeatureEvaluation(EXPRESSION_PARSER.parseExpression(expression), planContextManager);
+
+    }
+
+    public static Optional<Boolean> computeFeatureEvaluation(Expression expression,
+            PlanContextManager planContextManager) {
+
+        if (expression == null) {
+            return Optional.of(false);
+        }
+
+        return Optional.ofNullable(expression.getValue(EVALUATION_CONTEXT, new PricingEvaluationRoot(planContextManager),
                 Boolean.class));
 
     }
 
+    public static Optional<Boolean> computeFeatureEvaluation(PricingExpression expression,
+            PlanContextManager planContextManager) {
+
+        if (expression == null) {
+            return Optional.of(false);
+        }
+
+        return Optional.ofNullable(expression.evaluate(planContextManager));
+
+    }
+
     public static Optional<String> computeUserContextVariable(String expression) {
 
         if (!expression.contains("<") && !expression.contains(">")) {
@@ -3,6 +3,7 @@ package io.github.isagroup.models;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -23,6 +24,24 @@ public class Plan {
     private Map<String, Feature> features;
     private Map<String, UsageLimit> usageLimits;
 
+    /**
+     * Returns a copy of this plan, with copies of its features and usage
+     * limits, that can be modified without affecting it.
+     * 
+     * @return A copy of this plan
+     */
+    public Plan copy() {
+        Plan copy = new Plan();
+        copy.name = name;
+        copy.description = description;
+        copy.monthlyPrice = monthlyPrice;
+        copy.annualPrice = annualPrice;
+        copy.unit = unit;
+        copy.features = Feature.copyFeatures(features);
+        copy.usageLimits = UsageLimit.copyUsageLimits(usageLimits);
+        return copy;
+    }
+
     public Map<String, Object> parseToMap(){
         Map<String, Object> planMap = new LinkedHashMap<>();
         planMap.put("name", name);
@@ -35,6 +54,27 @@ public class Plan {
         return planMap;
     }
 
+    /**
+     * Builds the context against which feature expressions are evaluated for
+     * this plan: the plan attributes, with its features and usage limits
+     * replaced by their values, or their default values when not set.
+     *
+     * @return the plan context of this plan
+     */
+    public Map<String, Object> toPlanContext() {
+        Map<String, Object> planContext = parseToMap();
+
+        Map<String, Object> planFeaturesContext = features.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getValue() != null ? e.getValue().getValue() : e.getValue().getDefaultValue()));
+        planContext.put("features", planFeaturesContext);
+
+        Map<String, Object> planUsageLimitMap = usageLimits.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getValue() != null ? e.getValue().getValue() : e.getValue().getDefaultValue()));
+        planContext.put("usageLimits", planUsageLimitMap);
+
+        return planContext;
+    }
+
     public Map<String, Object> serializePlan() {
         Map<String, Object> attributes = new LinkedHashMap<>();
         attributes.put("description", description);
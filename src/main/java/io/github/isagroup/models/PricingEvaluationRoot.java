@@ -0,0 +1,26 @@
+package io.github.isagroup.models;
+
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * Root object against which feature expressions are evaluated.
+ *
+ * Unlike {@link PlanContextManager}, its type is final and its state cannot
+ * change, so compiled SpEL expressions can access the contexts through direct
+ * getter calls instead of reflective property lookups.
+ */
+@Getter
+public final class PricingEvaluationRoot {
+
+    private final Map<String, Object> userContext;
+    private final Map<String, Object> planContext;
+    private final Map<String, Object> usageLimitsContext;
+
+    public PricingEvaluationRoot(PlanContextManager planContextManager) {
+        this.userContext = planContextManager.getUserContext();
+        this.planContext = planContextManager.getPlanContext();
+        this.usageLimitsContext = planContextManager.getUsageLimitsContext();
+    }
+}
@@ -26,6 +26,36 @@ public class PricingManager {
     private Map<String, Plan> plans;
     private Map<String, AddOn> addOns;
 
+    /**
+     * Returns a deep copy of this pricing configuration, which can be modified
+     * without affecting it.
+     * 
+     * @return A copy of this pricing configuration
+     */
+    public PricingManager copy() {
+        PricingManager copy = new PricingManager();
+        copy.saasName = saasName;
+        copy.day = day;
+        copy.month = month;
+        copy.year = year;
+        copy.currency = currency;
+        copy.hasAnnualPayment = hasAnnualPayment;
+        copy.features = Feature.copyFeatures(features);
+        copy.usageLimits = UsageLimit.copyUsageLimits(usageLimits);
+
+        if (plans != null) {
+            copy.plans = new LinkedHashMap<>();
+            plans.forEach((name, plan) -> copy.plans.put(name, plan == null ? null : plan.copy()));
+        }
+
+        if (addOns != null) {
+            copy.addOns = new LinkedHashMap<>();
+            addOns.forEach((name, addOn) -> copy.addOns.put(name, addOn == null ? null : addOn.copy()));
+        }
+
+        return copy;
+    }
+
     public List<String> getPlanNames() {
         return List.copyOf(this.plans.keySet());
     }
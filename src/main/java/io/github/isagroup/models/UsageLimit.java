@@ -4,10 +4,6 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -19,7 +15,7 @@ import io.github.isagroup.exceptions.CloneUsageLimitException;
 @Getter
 @Setter
 @EqualsAndHashCode
-public abstract class UsageLimit implements Serializable {
+public abstract class UsageLimit implements Serializable, Cloneable {
     private String name;
     private String description;
     private ValueType valueType;
@@ -75,21 +71,51 @@ public abstract class UsageLimit implements Serializable {
         return attributes;
     }
 
-    public static UsageLimit cloneUsageLimit(UsageLimit original) throws CloneUsageLimitException {
+    /**
+     * Returns a copy of this usage limit that can be modified without affecting
+     * it. As in serialized copies, the value is not copied.
+     * 
+     * @return A copy of this usage limit
+     */
+    public UsageLimit copy() {
         try {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-            objectOutputStream.writeObject(original);
+            UsageLimit copy = (UsageLimit) super.clone();
+            copy.defaultValue = Feature.copyValue(defaultValue);
+            copy.value = null;
+            copy.linkedFeatures = linkedFeatures == null ? null : new ArrayList<>(linkedFeatures);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new CloneUsageLimitException("Error cloning usageLimit");
+        }
+    }
 
-            // Deserializa el objeto desde el flujo de bytes, creando una copia
-            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
-            ObjectInputStream objectInputStream = new ObjectInputStream(byteArrayInputStream);
+    /**
+     * Copies the usage limits of a plan, an add-on or a pricing, keeping their
+     * values, so the copy does not share any usage limit with the original.
+     */
+    static Map<String, UsageLimit> copyUsageLimits(Map<String, UsageLimit> usageLimits) {
 
-            return (UsageLimit) objectInputStream.readObject();
+        if (usageLimits == null) {
+            return null;
+        }
 
-        } catch (Exception e) {
-            throw new CloneUsageLimitException("Error cloning usageLimit");
+        Map<String, UsageLimit> copies = new LinkedHashMap<>();
+
+        for (Map.Entry<String, UsageLimit> usageLimit : usageLimits.entrySet()) {
+            UsageLimit copy = cloneUsageLimit(usageLimit.getValue());
+
+            if (copy != null) {
+                copy.value = Feature.copyValue(usageLimit.getValue().value);
+            }
+
+            copies.put(usageLimit.getKey(), copy);
         }
+
+        return copies;
+    }
+
+    public static UsageLimit cloneUsageLimit(UsageLimit original) throws CloneUsageLimitException {
+        return original == null ? null : original.copy();
     }
 
 }
@@ -0,0 +1,42 @@
+package io.github.isagroup.models;
+
+import java.util.Map;
+
+import io.github.isagroup.exceptions.PricingPlanEvaluationException;
+import lombok.Getter;
+
+/**
+ * Result of evaluating the features of a pricing configuration for one user
+ * in a batch. Either the feature statuses or the error that prevented their
+ * evaluation are set.
+ */
+@Getter
+public class UserEvaluation {
+
+    private final String planName;
+    private final Map<String, Object> userContext;
+    private final Map<String, FeatureStatus> featureStatuses;
+    private final PricingPlanEvaluationException error;
+
+    private UserEvaluation(String planName, Map<String, Object> userContext,
+            Map<String, FeatureStatus> featureStatuses, PricingPlanEvaluationException error) {
+        this.planName = planName;
+        this.userContext = userContext;
+        this.featureStatuses = featureStatuses;
+        this.error = error;
+    }
+
+    public static UserEvaluation of(String planName, Map<String, Object> userContext,
+            Map<String, FeatureStatus> featureStatuses) {
+        return new UserEvaluation(planName, userContext, featureStatuses, null);
+    }
+
+    public static UserEvaluation failed(String planName, Map<String, Object> userContext,
+            PricingPlanEvaluationException error) {
+        return new UserEvaluation(planName, userContext, null, error);
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.isagroup.models.featuretypes;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +33,13 @@ public class Integration extends Feature {
         return attributes;
     }
 
+    @Override
+    public Integration copy() {
+        Integration copy = (Integration) super.copy();
+        copy.pricingUrls = pricingUrls == null ? null : new ArrayList<>(pricingUrls);
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Integration[name: " + name + ", valueType: " + valueType + ", defaultValue: " + defaultValue
@@ -0,0 +1,114 @@
+package io.github.isagroup.services.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.github.isagroup.models.Feature;
+import io.github.isagroup.models.PricingManager;
+
+/**
+ * Reverse index from user context keys to the features whose expression reads
+ * them, used to re-evaluate only the features affected by a change in the
+ * user context.
+ *
+ * Features whose expression could not be analyzed are considered affected by
+ * any change.
+ */
+public final class DependencyIndex {
+
+    private final Map<String, Set<String>> featuresByUserContextKey;
+    private final Set<String> unanalyzedFeatures;
+    private final List<String> userContextKeys;
+
+    private DependencyIndex(Map<String, Set<String>> featuresByUserContextKey, Set<String> unanalyzedFeatures) {
+        this.featuresByUserContextKey = featuresByUserContextKey;
+        this.unanalyzedFeatures = unanalyzedFeatures;
+
+        if (unanalyzedFeatures.isEmpty()) {
+            List<String> keys = new ArrayList<>(featuresByUserContextKey.keySet());
+            Collections.sort(keys);
+            this.userContextKeys = Collections.unmodifiableList(keys);
+        } else {
+            this.userContextKeys = null;
+        }
+    }
+
+    /**
+     * Indexes the features of the given pricing configuration by the user
+     * context keys their expressions read.
+     *
+     * @param pricingManager the pricing configuration
+     * @param expressions    the parsed expressions of the configuration
+     * @return The dependency index of the configuration
+     */
+    public static DependencyIndex of(PricingManager pricingManager, ExpressionCache expressions) {
+
+        Map<String, Set<String>> featuresByUserContextKey = new HashMap<>();
+        Set<String> unanalyzedFeatures = new LinkedHashSet<>();
+
+        if (pricingManager != null && pricingManager.getFeatures() != null) {
+            for (Map.Entry<String, Feature> feature : pricingManager.getFeatures().entrySet()) {
+                ExpressionDependencies dependencies;
+
+                try {
+                    dependencies = expressions.getDependencies(feature.getValue().getExpression());
+                } catch (RuntimeException e) {
+                    // Invalid expressions are reported on evaluation
+                    unanalyzedFeatures.add(feature.getKey());
+                    continue;
+                }
+
+                if (!dependencies.isAnalyzed()) {
+                    unanalyzedFeatures.add(feature.getKey());
+                }
+
+                for (String userContextKey : dependencies.getUserContextKeys()) {
+                    featuresByUserContextKey.computeIfAbsent(userContextKey, key -> new LinkedHashSet<>())
+                            .add(feature.getKey());
+                }
+            }
+        }
+
+        return new DependencyIndex(featuresByUserContextKey, unanalyzedFeatures);
+    }
+
+    /**
+     * Returns the user context keys read by the expressions of the
+     * configuration, sorted by name.
+     *
+     * @return The user context keys, or {@code null} if some expression could
+     *         not be analyzed and may read any key
+     */
+    public List<String> getUserContextKeys() {
+        return userContextKeys;
+    }
+
+    /**
+     * Returns the features whose evaluation may change when the given user
+     * context keys change.
+     *
+     * @param changedUserContextKeys the user context keys whose values changed
+     * @return The names of the affected features
+     */
+    public Set<String> getAffectedFeatures(Collection<String> changedUserContextKeys) {
+
+        if (changedUserContextKeys.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> affectedFeatures = new LinkedHashSet<>(unanalyzedFeatures);
+
+        for (String changedUserContextKey : changedUserContextKeys) {
+            affectedFeatures.addAll(featuresByUserContextKey.getOrDefault(changedUserContextKey,
+                    Collections.emptySet()));
+        }
+
+        return affectedFeatures;
+    }
+}
@@ -0,0 +1,135 @@
+package io.github.isagroup.services.evaluation;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.isagroup.models.Feature;
+import io.github.isagroup.models.Plan;
+import io.github.isagroup.models.PlanContextManager;
+import io.github.isagroup.models.PricingManager;
+
+/**
+ * Precomputed evaluations of the feature expressions that only depend on the
+ * plan of the user, such as {@code planContext['features']['haveCalendar']}.
+ *
+ * The matrix is built once per pricing snapshot: every static expression is
+ * evaluated against the context of every plan, and its result stored in a
+ * bitset per plan indexed by the position of the feature. Expressions that
+ * read the user context, that fail or that evaluate to null are left out, so
+ * they keep being evaluated, and reporting their errors, on each request.
+ */
+public final class EntitlementMatrix {
+
+    private static final EntitlementMatrix EMPTY = new EntitlementMatrix(Collections.emptyMap(),
+            Collections.emptyMap());
+
+    private final Map<String, Integer> featureIndexes;
+    private final Map<String, PlanEntitlements> planEntitlements;
+
+    private EntitlementMatrix(Map<String, Integer> featureIndexes, Map<String, PlanEntitlements> planEntitlements) {
+        this.featureIndexes = featureIndexes;
+        this.planEntitlements = planEntitlements;
+    }
+
+    /**
+     * Evaluates the static expressions of the given pricing configuration for
+     * each of its plans.
+     *
+     * @param pricingManager the pricing configuration
+     * @param expressions    the parsed expressions of the configuration
+     * @return The entitlement matrix of the configuration
+     */
+    public static EntitlementMatrix of(PricingManager pricingManager, ExpressionCache expressions) {
+
+        if (pricingManager == null || pricingManager.getFeatures() == null || pricingManager.getPlans() == null) {
+            return EMPTY;
+        }
+
+        Map<String, Integer> featureIndexes = new HashMap<>();
+        Map<Integer, PricingExpression> staticExpressions = new HashMap<>();
+
+        for (Map.Entry<String, Feature> feature : pricingManager.getFeatures().entrySet()) {
+            int index = featureIndexes.size();
+            featureIndexes.put(feature.getKey(), index);
+
+            PricingExpression expression = getPricingExpression(expressions, feature.getValue().getExpression());
+
+            if (expression != null && !expression.isUserDependent()) {
+                staticExpressions.put(index, expression);
+            }
+        }
+
+        Map<String, PlanEntitlements> planEntitlements = new HashMap<>();
+
+        if (!staticExpressions.isEmpty()) {
+            for (Map.Entry<String, Plan> plan : pricingManager.getPlans().entrySet()) {
+                planEntitlements.put(plan.getKey(), evaluatePlan(plan.getValue(), staticExpressions));
+            }
+        }
+
+        return new EntitlementMatrix(featureIndexes, planEntitlements);
+    }
+
+    /**
+     * Returns the precomputed evaluation of a feature for a plan.
+     *
+     * @param planName    the name of the plan of the user
+     * @param featureName the name of the feature
+     * @return The evaluation of the feature expression for the plan, or
+     *         {@code null} if it has to be evaluated for each user
+     */
+    public Boolean getStaticEvaluation(String planName, String featureName) {
+        PlanEntitlements entitlements = planEntitlements.get(planName);
+        Integer featureIndex = featureIndexes.get(featureName);
+
+        if (entitlements == null || featureIndex == null || !entitlements.evaluated.get(featureIndex)) {
+            return null;
+        }
+
+        return entitlements.values.get(featureIndex);
+    }
+
+    private static PricingExpression getPricingExpression(ExpressionCache expressions, String expression) {
+        try {
+            return expressions.getPricingExpression(expression);
+        } catch (RuntimeException e) {
+            // Invalid expressions are reported on evaluation
+            return null;
+        }
+    }
+
+    private static PlanEntitlements evaluatePlan(Plan plan, Map<Integer, PricingExpression> staticExpressions) {
+        PlanEntitlements entitlements = new PlanEntitlements();
+        PlanContextManager planContextManager = new PlanContextManager();
+
+        try {
+            planContextManager.setUserContext(Collections.emptyMap());
+            planContextManager.setPlanContext(plan.toPlanContext());
+        } catch (RuntimeException e) {
+            // The plan context cannot be built, so neither can it be at runtime
+            return entitlements;
+        }
+
+        for (Map.Entry<Integer, PricingExpression> expression : staticExpressions.entrySet()) {
+            try {
+                Boolean eval = expression.getValue().evaluate(planContextManager);
+
+                if (eval != null) {
+                    entitlements.evaluated.set(expression.getKey());
+                    entitlements.values.set(expression.getKey(), eval);
+                }
+            } catch (RuntimeException e) {
+                // Reported on evaluation
+            }
+        }
+
+        return entitlements;
+    }
+
+    private static final class PlanEntitlements {
+        private final BitSet evaluated = new BitSet();
+        private final BitSet values = new BitSet();
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.isagroup.services.evaluation;
+
+/**
+ * Strategies that can be used to run the SpEL expressions of a pricing
+ * configuration
+ */
+public enum EvaluationMode {
+    /**
+     * Expressions are always interpreted by walking their syntax tree
+     */
+    INTERPRETED,
+    /**
+     * Expressions are compiled to bytecode once they have been evaluated a few
+     * times. Expressions that cannot be compiled keep being interpreted.
+     */
+    COMPILED
+}
@@ -0,0 +1,171 @@
+package io.github.isagroup.services.evaluation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import io.github.isagroup.models.Feature;
+import io.github.isagroup.models.PricingManager;
+
+/**
+ * Cache of the parsed SpEL expressions of a pricing configuration.
+ *
+ * The expressions and server expressions of every feature are parsed once,
+ * when the cache is built for a pricing snapshot, and looked up by their text
+ * afterwards. Parsed {@link Expression} objects are thread-safe, so a single
+ * instance is shared by every evaluation that runs against the snapshot.
+ *
+ * In {@link EvaluationMode#COMPILED} mode, expressions are parsed with the
+ * SpEL compiler enabled in {@link SpelCompilerMode#MIXED} mode: once an
+ * expression is hot it is compiled to bytecode, and if it cannot be compiled,
+ * or its compiled form fails, it falls back to being interpreted.
+ *
+ * Expressions are also available as {@link PricingExpression}s, which
+ * evaluate the common pricing constructs (context lookups, comparisons and
+ * boolean operators) natively and leave anything else to SpEL.
+ */
+public final class ExpressionCache {
+
+    private static final ExpressionParser INTERPRETED_EXPRESSION_PARSER = new SpelExpressionParser();
+    private static final ExpressionParser COMPILED_EXPRESSION_PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, ExpressionCache.class.getClassLoader()));
+
+    private final EvaluationMode evaluationMode;
+    private final ExpressionParser expressionParser;
+    private final ConcurrentMap<String, Expression> expressions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PricingExpression> pricingExpressions = new ConcurrentHashMap<>();
+
+    private ExpressionCache(EvaluationMode evaluationMode) {
+        this.evaluationMode = evaluationMode;
+        this.expressionParser = evaluationMode == EvaluationMode.COMPILED ? COMPILED_EXPRESSION_PARSER
+                : INTERPRETED_EXPRESSION_PARSER;
+    }
+
+    /**
+     * Builds a cache that contains the expressions of all the features defined
+     * in the given pricing configuration.
+     *
+     * Expressions that cannot be parsed are not cached, so the parsing error is
+     * reported when the expression is evaluated, as it would be without cache.
+     *
+     * @param pricingManager the pricing configuration whose expressions are
+     *                       parsed
+     * @return A cache filled with the expressions of the configuration
+     */
+    public static ExpressionCache of(PricingManager pricingManager) {
+        return of(pricingManager, EvaluationMode.INTERPRETED);
+    }
+
+    /**
+     * Builds a cache that contains the expressions of all the features defined
+     * in the given pricing configuration, parsed for the given evaluation mode.
+     *
+     * @param pricingManager the pricing configuration whose expressions are
+     *                       parsed
+     * @param evaluationMode how the cached expressions will be run
+     * @return A cache filled with the expressions of the configuration
+     */
+    public static ExpressionCache of(PricingManager pricingManager, EvaluationMode evaluationMode) {
+        ExpressionCache cache = new ExpressionCache(evaluationMode);
+
+        if (pricingManager == null || pricingManager.getFeatures() == null) {
+            return cache;
+        }
+
+        for (Feature feature : pricingManager.getFeatures().values()) {
+            cache.preload(feature.getExpression());
+            cache.preload(feature.getServerExpression());
+        }
+
+        return cache;
+    }
+
+    /**
+     * Returns the parsed version of the given expression, parsing it if it was
+     * not cached yet.
+     *
+     * @param expression the text of a SpEL expression
+     * @return The parsed expression, or {@code null} if {@code expression} is
+     *         null or blank
+     * @throws ParseException if the expression is not valid SpEL
+     */
+    public Expression getExpression(String expression) {
+
+        if (expression == null || expression.trim().isEmpty()) {
+            return null;
+        }
+
+        Expression cached = expressions.get(expression);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        return expressions.computeIfAbsent(expression, expressionParser::parseExpression);
+    }
+
+    /**
+     * Returns the evaluable version of the given expression, building it if it
+     * was not cached yet. Expressions the native engine can parse are evaluated
+     * without SpEL, the rest are evaluated with the parsed SpEL expression.
+     *
+     * @param expression the text of a SpEL expression
+     * @return The evaluable expression, or {@code null} if {@code expression} is
+     *         null or blank
+     * @throws ParseException if the expression is not valid SpEL
+     */
+    public PricingExpression getPricingExpression(String expression) {
+
+        if (expression == null || expression.trim().isEmpty()) {
+            return null;
+        }
+
+        PricingExpression cached = pricingExpressions.get(expression);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        return pricingExpressions.computeIfAbsent(expression, this::buildPricingExpression);
+    }
+
+    /**
+     * Returns the parts of the user and plan contexts the given expression
+     * reads.
+     *
+     * @param expression the text of a SpEL expression
+     * @return The dependencies of the expression, which are
+     *         {@link ExpressionDependencies#NONE} if {@code expression} is null
+     *         or blank
+     * @throws ParseException if the expression is not valid SpEL
+     */
+    public ExpressionDependencies getDependencies(String expression) {
+        PricingExpression pricingExpression = getPricingExpression(expression);
+        return pricingExpression == null ? ExpressionDependencies.NONE : pricingExpression.getDependencies();
+    }
+
+    public EvaluationMode getEvaluationMode() {
+        return evaluationMode;
+    }
+
+    private PricingExpression buildPricingExpression(String expression) {
+        PricingExpression spelExpression = new SpelPricingExpression(getExpression(expression));
+        ExpressionNode root = PricingExpressionParser.parse(expression);
+
+        return root == null ? spelExpression : new NativePricingExpression(root, spelExpression);
+    }
+
+    private void preload(String expression) {
+        try {
+            getPricingExpression(expression);
+        } catch (ParseException e) {
+            // Reported on evaluation
+        }
+    }
+}
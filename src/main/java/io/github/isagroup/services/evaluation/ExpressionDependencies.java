@@ -0,0 +1,167 @@
+package io.github.isagroup.services.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import io.github.isagroup.models.FeatureStatus;
+import lombok.Getter;
+
+/**
+ * Parts of the user and plan contexts a feature expression reads, worked out
+ * once when the expression is parsed.
+ *
+ * Besides the context entries the expression depends on, the descriptor
+ * identifies the usage the expression checks, if any: the user context key
+ * holding the amount used, and the usage limit it is compared against. These
+ * are reported as the {@code used} and {@code limit} values of the feature
+ * status.
+ */
+@Getter
+public final class ExpressionDependencies {
+
+    /**
+     * Dependencies of blank expressions, which read nothing
+     */
+    public static final ExpressionDependencies NONE = new ExpressionDependencies(true, Collections.emptySet(),
+            Collections.emptySet(), Collections.emptySet(), null, null);
+
+    private static final String FEATURES = "features";
+    private static final String USAGE_LIMITS = "usageLimits";
+
+    /**
+     * Whether the sets of dependencies are complete. Expressions only SpEL can
+     * parse are not analyzed, so their only known dependency is the user
+     * context key of the usage they check.
+     */
+    private final boolean analyzed;
+    private final Set<String> userContextKeys;
+    private final Set<String> planFeatures;
+    private final Set<String> usageLimits;
+    private final String usedKey;
+    private final String usageLimitName;
+
+    private ExpressionDependencies(boolean analyzed, Set<String> userContextKeys, Set<String> planFeatures,
+            Set<String> usageLimits, String usedKey, String usageLimitName) {
+        this.analyzed = analyzed;
+        this.userContextKeys = userContextKeys;
+        this.planFeatures = planFeatures;
+        this.usageLimits = usageLimits;
+        this.usedKey = usedKey;
+        this.usageLimitName = usageLimitName;
+    }
+
+    /**
+     * Extracts the dependencies of an expression from its syntax tree. The
+     * checked usage is the first comparison between a user context entry and
+     * another value.
+     */
+    static ExpressionDependencies of(ExpressionNode root) {
+        List<ExpressionNode> nodes = new ArrayList<>();
+        root.forEach(nodes::add);
+
+        Set<String> userContextKeys = new LinkedHashSet<>();
+        Set<String> planFeatures = new LinkedHashSet<>();
+        Set<String> usageLimits = new LinkedHashSet<>();
+
+        for (ExpressionNode node : nodes) {
+            if (!(node instanceof ExpressionNode.ContextReference)) {
+                continue;
+            }
+
+            ExpressionNode.ContextReference reference = (ExpressionNode.ContextReference) node;
+            String[] keys = reference.getKeys();
+
+            if (reference.isUserContextReference()) {
+                userContextKeys.add(keys[0]);
+            } else if (keys.length > 1 && FEATURES.equals(keys[0])) {
+                planFeatures.add(keys[1]);
+            } else if (keys.length > 1 && USAGE_LIMITS.equals(keys[0])) {
+                usageLimits.add(keys[1]);
+            }
+        }
+
+        String usedKey = null;
+        String usageLimitName = null;
+
+        for (ExpressionNode node : nodes) {
+            if (!(node instanceof ExpressionNode.Comparison)) {
+                continue;
+            }
+
+            ExpressionNode.Comparison comparison = (ExpressionNode.Comparison) node;
+
+            if (isUserContextReference(comparison.getLeft())) {
+                usedKey = ((ExpressionNode.ContextReference) comparison.getLeft()).getKeys()[0];
+                usageLimitName = getUsageLimitName(comparison.getRight());
+                break;
+            } else if (isUserContextReference(comparison.getRight())) {
+                usedKey = ((ExpressionNode.ContextReference) comparison.getRight()).getKeys()[0];
+                usageLimitName = getUsageLimitName(comparison.getLeft());
+                break;
+            }
+        }
+
+        if (usedKey != null && usageLimitName == null && !usageLimits.isEmpty()) {
+            usageLimitName = usageLimits.iterator().next();
+        }
+
+        return new ExpressionDependencies(true, Collections.unmodifiableSet(userContextKeys),
+                Collections.unmodifiableSet(planFeatures), Collections.unmodifiableSet(usageLimits), usedKey,
+                usageLimitName);
+    }
+
+    /**
+     * Finds the checked usage of an expression the native engine cannot parse
+     * from its text, the way it used to be done on each evaluation.
+     */
+    static ExpressionDependencies fromText(String expression) {
+        String usedKey;
+        String usageLimitName = null;
+
+        try {
+            Optional<String> userContextKey = FeatureStatus.computeUserContextVariable(expression);
+            usedKey = userContextKey.orElse(null);
+        } catch (RuntimeException e) {
+            usedKey = null;
+        }
+
+        if (usedKey != null && expression.contains(USAGE_LIMITS)) {
+            try {
+                usageLimitName = expression.split(USAGE_LIMITS)[1].split("[',\"]")[2];
+            } catch (RuntimeException e) {
+                usageLimitName = null;
+            }
+        }
+
+        Set<String> userContextKeys = usedKey == null ? Collections.emptySet() : Collections.singleton(usedKey);
+        Set<String> usageLimits = usageLimitName == null ? Collections.emptySet()
+                : Collections.singleton(usageLimitName);
+
+        return new ExpressionDependencies(false, userContextKeys, Collections.emptySet(), usageLimits, usedKey,
+                usageLimitName);
+    }
+
+    private static boolean isUserContextReference(ExpressionNode node) {
+        return node instanceof ExpressionNode.ContextReference
+                && ((ExpressionNode.ContextReference) node).isUserContextReference();
+    }
+
+    private static String getUsageLimitName(ExpressionNode node) {
+        if (!(node instanceof ExpressionNode.ContextReference)) {
+            return null;
+        }
+
+        ExpressionNode.ContextReference reference = (ExpressionNode.ContextReference) node;
+        String[] keys = reference.getKeys();
+
+        if (reference.isUserContextReference() || keys.length < 2 || !USAGE_LIMITS.equals(keys[0])) {
+            return null;
+        }
+
+        return keys[1];
+    }
+}
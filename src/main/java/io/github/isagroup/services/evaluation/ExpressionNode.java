@@ -0,0 +1,328 @@
+package io.github.isagroup.services.evaluation;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Node of the syntax tree built by {@link PricingExpressionParser}.
+ *
+ * Nodes reproduce the SpEL semantics of the operators they model for the
+ * values pricing expressions work with: numbers, strings, booleans and null.
+ * Whenever a node finds any other value, or a situation in which SpEL would
+ * convert a value or fail, it returns {@link #UNSUPPORTED} so the expression
+ * is evaluated with SpEL instead. Evaluation never allocates: it only returns
+ * values found in the contexts, literals and the {@link Boolean} constants.
+ * Context references are resolved by key rather than by slot, see
+ * {@link ContextReference}.
+ */
+abstract class ExpressionNode {
+
+    /**
+     * Returned by a node that cannot evaluate the expression with the values it
+     * has found
+     */
+    static final Object UNSUPPORTED = new Object();
+
+    abstract Object value(Map<String, Object> userContext, Map<String, Object> planContext);
+
+    /**
+     * Applies the given action to this node and then to each of its children
+     */
+    abstract void forEach(Consumer<ExpressionNode> action);
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isNumeric(Object value) {
+        return isIntegral(value) || value instanceof Double;
+    }
+
+    private static boolean isComparable(Object value) {
+        return value == null || value instanceof Number || value instanceof String || value instanceof Boolean;
+    }
+
+    static final class Literal extends ExpressionNode {
+
+        private final Object literal;
+
+        Literal(Object literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        Object value(Map<String, Object> userContext, Map<String, Object> planContext) {
+            return literal;
+        }
+
+        @Override
+        void forEach(Consumer<ExpressionNode> action) {
+            action.accept(this);
+        }
+    }
+
+    /**
+     * Reads a value from the user or plan context following a fixed path of
+     * keys, e.g. {@code planContext['usageLimits']['maxPets']}.
+     *
+     * The keys are looked up in the context maps on every evaluation instead of
+     * being resolved to indexed slots when parsing: the user context is a map
+     * supplied by the application on each request, and the plan context is the
+     * map of whichever plan the evaluation runs against, so there is no fixed
+     * layout to resolve the keys against. Each lookup is a single hash of a
+     * string whose hash code is already cached.
+     */
+    static final class ContextReference extends ExpressionNode {
+
+        private final boolean userContextReference;
+        private final String[] keys;
+
+        ContextReference(boolean userContextReference, String[] keys) {
+            this.userContextReference = userContextReference;
+            this.keys = keys;
+        }
+
+        boolean isUserContextReference() {
+            return userContextReference;
+        }
+
+        String[] getKeys() {
+            return keys;
+        }
+
+        @Override
+        Object value(Map<String, Object> userContext, Map<String, Object> planContext) {
+            Object target = userContextReference ? userContext : planContext;
+
+            for (String key : keys) {
+                if (!(target instanceof Map)) {
+                    return UNSUPPORTED;
+                }
+                target = ((Map<?, ?>) target).get(key);
+            }
+
+            return target;
+        }
+
+        @Override
+        void forEach(Consumer<ExpressionNode> action) {
+            action.accept(this);
+        }
+    }
+
+    static final class Comparison extends ExpressionNode {
+
+        enum Operator {
+            LT, LE, GT, GE
+        }
+
+        private final Operator operator;
+        private final ExpressionNode left;
+        private final ExpressionNode right;
+
+        Comparison(Operator operator, ExpressionNode left, ExpressionNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        ExpressionNode getLeft() {
+            return left;
+        }
+
+        ExpressionNode getRight() {
+            return right;
+        }
+
+        @Override
+        Object value(Map<String, Object> userContext, Map<String, Object> planContext) {
+            Object leftValue = left.value(userContext, planContext);
+            Object rightValue = right.value(userContext, planContext);
+
+            if (isIntegral(leftValue) && isIntegral(rightValue)) {
+                long leftNumber = ((Number) leftValue).longValue();
+                long rightNumber = ((Number) rightValue).longValue();
+                return compare(Long.compare(leftNumber, rightNumber));
+            }
+
+            if (isNumeric(leftValue) && isNumeric(rightValue)) {
+                double leftNumber = ((Number) leftValue).doubleValue();
+                double rightNumber = ((Number) rightValue).doubleValue();
+                switch (operator) {
+                    case LT:
+                        return leftNumber < rightNumber;
+                    case LE:
+                        return leftNumber <= rightNumber;
+                    case GT:
+                        return leftNumber > rightNumber;
+                    default:
+                        return leftNumber >= rightNumber;
+                }
+            }
+
+            return UNSUPPORTED;
+        }
+
+        private Boolean compare(int comparison) {
+            switch (operator) {
+                case LT:
+                    return comparison < 0;
+                case LE:
+                    return comparison <= 0;
+                case GT:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        @Override
+        void forEach(Consumer<ExpressionNode> action) {
+            action.accept(this);
+            left.forEach(action);
+            right.forEach(action);
+        }
+    }
+
+    static final class Equality extends ExpressionNode {
+
+        private final boolean negated;
+        private final ExpressionNode left;
+        private final ExpressionNode right;
+
+        Equality(boolean negated, ExpressionNode left, ExpressionNode right) {
+            this.negated = negated;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object value(Map<String, Object> userContext, Map<String, Object> planContext) {
+            Object leftValue = left.value(userContext, planContext);
+            Object rightValue = right.value(userContext, planContext);
+
+            if (!isComparable(leftValue) || !isComparable(rightValue)) {
+                return UNSUPPORTED;
+            }
+
+            boolean equal;
+
+            if (leftValue instanceof Number && rightValue instanceof Number) {
+                if (isIntegral(leftValue) && isIntegral(rightValue)) {
+                    equal = ((Number) leftValue).longValue() == ((Number) rightValue).longValue();
+                } else if (isNumeric(leftValue) && isNumeric(rightValue)) {
+                    equal = ((Number) leftValue).doubleValue() == ((Number) rightValue).doubleValue();
+                } else {
+                    return UNSUPPORTED;
+                }
+            } else if (leftValue == null || rightValue == null) {
+                equal = leftValue == rightValue;
+            } else {
+                equal = leftValue.equals(rightValue);
+            }
+
+            return negated != equal;
+        }
+
+        @Override
+        void forEach(Consumer<ExpressionNode> action) {
+            action.accept(this);
+            left.forEach(action);
+            right.forEach(action);
+        }
+    }
+
+    static final class And extends ExpressionNode {
+
+        private final ExpressionNode left;
+        private final ExpressionNode right;
+
+        And(ExpressionNode left, ExpressionNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object value(Map<String, Object> userContext, Map<String, Object> planContext) {
+            Object leftValue = left.value(userContext, planContext);
+
+            if (!(leftValue instanceof Boolean)) {
+                return UNSUPPORTED;
+            }
+
+            if (!((Boolean) leftValue)) {
+                return Boolean.FALSE;
+            }
+
+            Object rightValue = right.value(userContext, planContext);
+            return rightValue instanceof Boolean ? rightValue : UNSUPPORTED;
+        }
+
+        @Override
+        void forEach(Consumer<ExpressionNode> action) {
+            action.accept(this);
+            left.forEach(action);
+            right.forEach(action);
+        }
+    }
+
+    static final class Or extends ExpressionNode {
+
+        private final ExpressionNode left;
+        private final ExpressionNode right;
+
+        Or(ExpressionNode left, ExpressionNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object value(Map<String, Object> userContext, Map<String, Object> planContext) {
+            Object leftValue = left.value(userContext, planContext);
+
+            if (!(leftValue instanceof Boolean)) {
+                return UNSUPPORTED;
+            }
+
+            if ((Boolean) leftValue) {
+                return Boolean.TRUE;
+            }
+
+            Object rightValue = right.value(userContext, planContext);
+            return rightValue instanceof Boolean ? rightValue : UNSUPPORTED;
+        }
+
+        @Override
+        void forEach(Consumer<ExpressionNode> action) {
+            action.accept(this);
+            left.forEach(action);
+            right.forEach(action);
+        }
+    }
+
+    static final class Not extends ExpressionNode {
+
+        private final ExpressionNode operand;
+
+        Not(ExpressionNode operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        Object value(Map<String, Object> userContext, Map<String, Object> planContext) {
+            Object operandValue = operand.value(userContext, planContext);
+
+            if (!(operandValue instanceof Boolean)) {
+                return UNSUPPORTED;
+            }
+
+            return !((Boolean) operandValue);
+        }
+
+        @Override
+        void forEach(Consumer<ExpressionNode> action) {
+            action.accept(this);
+            operand.forEach(action);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.isagroup.services.evaluation;
+
+import io.github.isagroup.models.PlanContextManager;
+
+/**
+ * Pricing expression evaluated by walking the syntax tree built by
+ * {@link PricingExpressionParser}, without SpEL's reflection, type conversion
+ * and boxing.
+ *
+ * When the tree cannot evaluate the expression with the values found in the
+ * contexts, the expression is evaluated by SpEL, so results and errors are
+ * always the ones SpEL would give.
+ */
+final class NativePricingExpression implements PricingExpression {
+
+    private final ExpressionNode root;
+    private final PricingExpression fallback;
+    private final ExpressionDependencies dependencies;
+
+    NativePricingExpression(ExpressionNode root, PricingExpression fallback) {
+        this.root = root;
+        this.fallback = fallback;
+        this.dependencies = ExpressionDependencies.of(root);
+    }
+
+    @Override
+    public Boolean evaluate(PlanContextManager planContextManager) {
+        Object result = root.value(planContextManager.getUserContext(), planContextManager.getPlanContext());
+
+        if (result == null) {
+            return null;
+        }
+
+        if (result instanceof Boolean) {
+            return (Boolean) result;
+        }
+
+        return fallback.evaluate(planContextManager);
+    }
+
+    @Override
+    public boolean isUserDependent() {
+        return !dependencies.getUserContextKeys().isEmpty();
+    }
+
+    @Override
+    public ExpressionDependencies getDependencies() {
+        return dependencies;
+    }
+}
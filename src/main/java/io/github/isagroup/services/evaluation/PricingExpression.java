@@ -0,0 +1,39 @@
+package io.github.isagroup.services.evaluation;
+
+import io.github.isagroup.models.PlanContextManager;
+
+/**
+ * Parsed feature expression, ready to be evaluated against the context of a
+ * user. Implementations are immutable and can be shared between threads.
+ */
+public interface PricingExpression {
+
+    /**
+     * Evaluates the expression against the given contexts.
+     *
+     * @param planContextManager the user and plan contexts of the evaluation
+     * @return The result of the expression, or {@code null} if it evaluates to
+     *         null
+     * @throws org.springframework.expression.EvaluationException if the
+     *                                                            expression
+     *                                                            cannot be
+     *                                                            evaluated
+     */
+    Boolean evaluate(PlanContextManager planContextManager);
+
+    /**
+     * Returns whether the result of the expression may depend on the user
+     * context. Expressions that do not are fixed for a given plan, and can be
+     * evaluated once per plan.
+     *
+     * @return false only if the expression is known not to read the user context
+     */
+    boolean isUserDependent();
+
+    /**
+     * Returns the parts of the user and plan contexts the expression reads.
+     *
+     * @return the dependencies of the expression
+     */
+    ExpressionDependencies getDependencies();
+}
@@ -0,0 +1,272 @@
+package io.github.isagroup.services.evaluation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.isagroup.services.evaluation.ExpressionNode.Comparison.Operator;
+
+/**
+ * Recursive descent parser for the subset of SpEL used by pricing
+ * expressions:
+ *
+ * <pre>
+ * or         := and ('||' and)*
+ * and        := relational ('&amp;&amp;' relational)*
+ * relational := unary (('&lt;' | '&lt;=' | '&gt;' | '&gt;=' | '==' | '!=') unary)?
+ * unary      := '!' unary | primary
+ * primary    := '(' or ')' | reference | literal
+ * reference  := ('userContext' | 'planContext') ('[' string ']')+
+ * literal    := integer | decimal | string | 'true' | 'false' | 'null'
+ * </pre>
+ *
+ * Operators follow the precedence SpEL gives them. Any other construct
+ * (method calls, properties, textual operators, arithmetic...) is not
+ * supported, in which case the expression is left to SpEL.
+ */
+final class PricingExpressionParser {
+
+    private static final String USER_CONTEXT = "userContext";
+    private static final String PLAN_CONTEXT = "planContext";
+
+    private final String text;
+    private int position;
+
+    private PricingExpressionParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses the given expression.
+     *
+     * @param expression the text of a pricing expression
+     * @return The syntax tree of the expression, or {@code null} if the
+     *         expression uses syntax the parser does not support
+     */
+    static ExpressionNode parse(String expression) {
+
+        if (expression == null) {
+            return null;
+        }
+
+        PricingExpressionParser parser = new PricingExpressionParser(expression);
+
+        try {
+            ExpressionNode node = parser.parseOr();
+            parser.skipWhitespace();
+            return parser.position == expression.length() ? node : null;
+        } catch (UnsupportedSyntaxException e) {
+            return null;
+        }
+    }
+
+    private ExpressionNode parseOr() {
+        ExpressionNode node = parseAnd();
+
+        while (consume("||")) {
+            node = new ExpressionNode.Or(node, parseAnd());
+        }
+
+        return node;
+    }
+
+    private ExpressionNode parseAnd() {
+        ExpressionNode node = parseRelational();
+
+        while (consume("&&")) {
+            node = new ExpressionNode.And(node, parseRelational());
+        }
+
+        return node;
+    }
+
+    private ExpressionNode parseRelational() {
+        ExpressionNode left = parseUnary();
+
+        if (consume("<=")) {
+            return new ExpressionNode.Comparison(Operator.LE, left, parseUnary());
+        } else if (consume(">=")) {
+            return new ExpressionNode.Comparison(Operator.GE, left, parseUnary());
+        } else if (consume("<")) {
+            return new ExpressionNode.Comparison(Operator.LT, left, parseUnary());
+        } else if (consume(">")) {
+            return new ExpressionNode.Comparison(Operator.GT, left, parseUnary());
+        } else if (consume("==")) {
+            return new ExpressionNode.Equality(false, left, parseUnary());
+        } else if (consume("!=")) {
+            return new ExpressionNode.Equality(true, left, parseUnary());
+        }
+
+        return left;
+    }
+
+    private ExpressionNode parseUnary() {
+        skipWhitespace();
+
+        if (text.startsWith("!", position) && !text.startsWith("!=", position)) {
+            position++;
+            return new ExpressionNode.Not(parseUnary());
+        }
+
+        return parsePrimary();
+    }
+
+    private ExpressionNode parsePrimary() {
+        skipWhitespace();
+
+        if (position >= text.length()) {
+            throw new UnsupportedSyntaxException();
+        }
+
+        char current = text.charAt(position);
+
+        if (current == '(') {
+            position++;
+            ExpressionNode node = parseOr();
+            expect(")");
+            return node;
+        }
+
+        if (current == '\'' || current == '"') {
+            return new ExpressionNode.Literal(parseString());
+        }
+
+        if (isDigit(current)) {
+            return new ExpressionNode.Literal(parseNumber());
+        }
+
+        if (Character.isJavaIdentifierStart(current)) {
+            return parseIdentifier();
+        }
+
+        throw new UnsupportedSyntaxException();
+    }
+
+    private ExpressionNode parseIdentifier() {
+        int start = position;
+
+        while (position < text.length() && Character.isJavaIdentifierPart(text.charAt(position))) {
+            position++;
+        }
+
+        String identifier = text.substring(start, position);
+
+        switch (identifier) {
+            case "true":
+                return new ExpressionNode.Literal(Boolean.TRUE);
+            case "false":
+                return new ExpressionNode.Literal(Boolean.FALSE);
+            case "null":
+                return new ExpressionNode.Literal(null);
+            case USER_CONTEXT:
+                return new ExpressionNode.ContextReference(true, parseKeys());
+            case PLAN_CONTEXT:
+                return new ExpressionNode.ContextReference(false, parseKeys());
+            default:
+                throw new UnsupportedSyntaxException();
+        }
+    }
+
+    private String[] parseKeys() {
+        List<String> keys = new ArrayList<>();
+
+        while (consume("[")) {
+            skipWhitespace();
+
+            if (position >= text.length() || (text.charAt(position) != '\'' && text.charAt(position) != '"')) {
+                throw new UnsupportedSyntaxException();
+            }
+
+            keys.add(parseString());
+            expect("]");
+        }
+
+        if (keys.isEmpty()) {
+            throw new UnsupportedSyntaxException();
+        }
+
+        return keys.toArray(new String[0]);
+    }
+
+    private String parseString() {
+        char quote = text.charAt(position);
+        int end = text.indexOf(quote, position + 1);
+
+        // Doubled quotes are escapes in SpEL
+        if (end < 0 || text.startsWith(String.valueOf(quote), end + 1)) {
+            throw new UnsupportedSyntaxException();
+        }
+
+        String value = text.substring(position + 1, end);
+        position = end + 1;
+        return value;
+    }
+
+    private Object parseNumber() {
+        int start = position;
+
+        while (position < text.length() && isDigit(text.charAt(position))) {
+            position++;
+        }
+
+        boolean decimal = false;
+
+        if (position + 1 < text.length() && text.charAt(position) == '.' && isDigit(text.charAt(position + 1))) {
+            decimal = true;
+            position++;
+
+            while (position < text.length() && isDigit(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        // Suffixes, exponents and hexadecimal literals are left to SpEL
+        if (position < text.length()
+                && (Character.isJavaIdentifierPart(text.charAt(position)) || text.charAt(position) == '.')) {
+            throw new UnsupportedSyntaxException();
+        }
+
+        String number = text.substring(start, position);
+
+        try {
+            return decimal ? (Object) Double.valueOf(number) : (Object) Integer.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw new UnsupportedSyntaxException();
+        }
+    }
+
+    private boolean consume(String token) {
+        skipWhitespace();
+
+        if (text.startsWith(token, position)) {
+            position += token.length();
+            return true;
+        }
+
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!consume(token)) {
+            throw new UnsupportedSyntaxException();
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
+    private static class UnsupportedSyntaxException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedSyntaxException() {
+            super(null, null, false, false);
+        }
+    }
+}
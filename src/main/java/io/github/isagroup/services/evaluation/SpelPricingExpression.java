@@ -0,0 +1,36 @@
+package io.github.isagroup.services.evaluation;
+
+import org.springframework.expression.Expression;
+
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.models.PlanContextManager;
+
+/**
+ * Pricing expression evaluated by SpEL.
+ */
+final class SpelPricingExpression implements PricingExpression {
+
+    private final Expression expression;
+    private final ExpressionDependencies dependencies;
+
+    SpelPricingExpression(Expression expression) {
+        this.expression = expression;
+        this.dependencies = ExpressionDependencies.fromText(expression.getExpressionString());
+    }
+
+    @Override
+    public Boolean evaluate(PlanContextManager planContextManager) {
+        return FeatureStatus.computeFeatureEvaluation(expression, planContextManager).orElse(null);
+    }
+
+    @Override
+    public boolean isUserDependent() {
+        // SpEL expressions are not analyzed
+        return true;
+    }
+
+    @Override
+    public ExpressionDependencies getDependencies() {
+        return dependencies;
+    }
+}
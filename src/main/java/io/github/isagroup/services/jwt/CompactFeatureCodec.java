@@ -0,0 +1,286 @@
+package io.github.isagroup.services.jwt;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.isagroup.exceptions.MalformedTokenException;
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+
+/**
+ * Binary encoding of feature statuses for {@link TokenFormat#COMPACT} pricing
+ * tokens.
+ *
+ * Features are identified by their position in the pricing configuration
+ * instead of by name. The encoded value holds the version of the snapshot the
+ * statuses were computed with, a hash of the ordered feature names, a bitset
+ * of the features that have an evaluation, a bitset of evaluations, a bitset
+ * of the features that have used or limit values, and those values packed by
+ * type. It is written as unpadded URL-safe Base64.
+ *
+ * Used and limit values that are not numbers or booleans are decoded as their
+ * string representation.
+ */
+public final class CompactFeatureCodec {
+
+    /**
+     * Name of the claim of the pricing token that holds the encoded statuses
+     */
+    public static final String CLAIM = "compactFeatures";
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INTEGER = 3;
+    private static final int DECIMAL = 4;
+    private static final int TEXT = 5;
+
+    private CompactFeatureCodec() {
+    }
+
+    /**
+     * Encodes the given feature statuses.
+     *
+     * @param featureStatuses the status of each feature of the snapshot, indexed
+     *                        by feature name
+     * @param pricingSnapshot the snapshot the statuses were computed with
+     * @return The encoded statuses
+     */
+    public static String encode(Map<String, FeatureStatus> featureStatuses, PricingSnapshot pricingSnapshot) {
+
+        List<String> featureNames = getFeatureNames(pricingSnapshot);
+
+        BitSet evaluated = new BitSet(featureNames.size());
+        BitSet evaluations = new BitSet(featureNames.size());
+        BitSet usages = new BitSet(featureNames.size());
+
+        for (int i = 0; i < featureNames.size(); i++) {
+            FeatureStatus featureStatus = featureStatuses.get(featureNames.get(i));
+
+            if (featureStatus == null) {
+                continue;
+            }
+
+            evaluated.set(i, featureStatus.getEval() != null);
+            evaluations.set(i, Boolean.TRUE.equals(featureStatus.getEval()));
+            usages.set(i, featureStatus.getUsed() != null || featureStatus.getLimit() != null);
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(FORMAT_VERSION);
+        writeVarLong(output, pricingSnapshot.getVersion());
+        writeLong(output, layoutHash(featureNames));
+        writeVarLong(output, featureNames.size());
+        writeBitSet(output, evaluated, featureNames.size());
+        writeBitSet(output, evaluations, featureNames.size());
+        writeBitSet(output, usages, featureNames.size());
+
+        for (int i = usages.nextSetBit(0); i >= 0; i = usages.nextSetBit(i + 1)) {
+            FeatureStatus featureStatus = featureStatuses.get(featureNames.get(i));
+            writeValue(output, featureStatus.getUsed());
+            writeValue(output, featureStatus.getLimit());
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(output.toByteArray());
+    }
+
+    /**
+     * Decodes feature statuses encoded by
+     * {@link CompactFeatureCodec#encode(Map, PricingSnapshot)}.
+     *
+     * @param encoded         the encoded statuses
+     * @param pricingSnapshot the snapshot currently in use
+     * @return The status of each feature, indexed by feature name, or
+     *         {@code null} if the statuses were encoded for a pricing
+     *         configuration with different features
+     * @throws MalformedTokenException if the value is not valid
+     */
+    public static Map<String, FeatureStatus> decode(String encoded, PricingSnapshot pricingSnapshot) {
+
+        List<String> featureNames = getFeatureNames(pricingSnapshot);
+
+        try {
+            ByteBuffer input = ByteBuffer.wrap(decodeBase64(encoded));
+
+            if (input.get() != FORMAT_VERSION) {
+                throw new MalformedTokenException("Unsupported compact feature format");
+            }
+
+            readVarLong(input);
+            long layoutHash = input.getLong();
+            long featureCount = readVarLong(input);
+
+            if (layoutHash != layoutHash(featureNames) || featureCount != featureNames.size()) {
+                return null;
+            }
+
+            BitSet evaluated = readBitSet(input, featureNames.size());
+            BitSet evaluations = readBitSet(input, featureNames.size());
+            BitSet usages = readBitSet(input, featureNames.size());
+
+            Map<String, FeatureStatus> featureStatuses = new LinkedHashMap<>();
+
+            for (int i = 0; i < featureNames.size(); i++) {
+                FeatureStatus featureStatus = new FeatureStatus();
+                featureStatus.setEval(evaluated.get(i) ? evaluations.get(i) : null);
+
+                if (usages.get(i)) {
+                    featureStatus.setUsed(readValue(input));
+                    featureStatus.setLimit(readValue(input));
+                }
+
+                featureStatuses.put(featureNames.get(i), featureStatus);
+            }
+
+            return featureStatuses;
+        } catch (BufferUnderflowException e) {
+            throw new MalformedTokenException("Truncated compact feature statuses", e);
+        }
+    }
+
+    /**
+     * Returns the version of the snapshot the given statuses were encoded with.
+     *
+     * @param encoded the encoded statuses
+     * @return the snapshot version
+     * @throws MalformedTokenException if the value is not valid
+     */
+    public static long getSnapshotVersion(String encoded) {
+        try {
+            ByteBuffer input = ByteBuffer.wrap(decodeBase64(encoded));
+            input.get();
+            return readVarLong(input);
+        } catch (BufferUnderflowException e) {
+            throw new MalformedTokenException("Truncated compact feature statuses", e);
+        }
+    }
+
+    private static byte[] decodeBase64(String encoded) {
+        try {
+            return Base64.getUrlDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedTokenException("Compact feature statuses are not valid Base64", e);
+        }
+    }
+
+    private static List<String> getFeatureNames(PricingSnapshot pricingSnapshot) {
+        return pricingSnapshot.getFrozenPricing().getFeatureNames();
+    }
+
+    private static long layoutHash(List<String> featureNames) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (String featureName : featureNames) {
+            for (int i = 0; i < featureName.length(); i++) {
+                hash = (hash ^ featureName.charAt(i)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0xffff) * 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    private static void writeValue(ByteArrayOutputStream output, Object value) {
+
+        if (value == null) {
+            output.write(NULL);
+        } else if (value instanceof Boolean) {
+            output.write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            output.write(INTEGER);
+            long number = ((Number) value).longValue();
+            writeVarLong(output, (number << 1) ^ (number >> 63));
+        } else if (value instanceof Double || value instanceof Float) {
+            output.write(DECIMAL);
+            writeLong(output, Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else {
+            byte[] text = value.toString().getBytes(StandardCharsets.UTF_8);
+            output.write(TEXT);
+            writeVarLong(output, text.length);
+            output.write(text, 0, text.length);
+        }
+    }
+
+    private static Object readValue(ByteBuffer input) {
+        int tag = input.get();
+
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case INTEGER:
+                long zigzag = readVarLong(input);
+                long number = (zigzag >>> 1) ^ -(zigzag & 1);
+                return number == (int) number ? (Object) (int) number : (Object) number;
+            case DECIMAL:
+                return Double.longBitsToDouble(input.getLong());
+            case TEXT:
+                long length = readVarLong(input);
+
+                if (length < 0 || length > input.remaining()) {
+                    throw new MalformedTokenException("Invalid text length in compact feature statuses: " + length);
+                }
+
+                byte[] text = new byte[(int) length];
+                input.get(text);
+                return new String(text, StandardCharsets.UTF_8);
+            default:
+                throw new MalformedTokenException("Unknown value type in compact feature statuses: " + tag);
+        }
+    }
+
+    private static void writeBitSet(ByteArrayOutputStream output, BitSet bits, int size) {
+        byte[] bytes = new byte[(size + 7) / 8];
+        byte[] set = bits.toByteArray();
+        System.arraycopy(set, 0, bytes, 0, set.length);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static BitSet readBitSet(ByteBuffer input, int size) {
+        byte[] bytes = new byte[(size + 7) / 8];
+        input.get(bytes);
+        return BitSet.valueOf(bytes);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer input) {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte current = input.get();
+            value |= (long) (current & 0x7F) << shift;
+
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new MalformedTokenException("Malformed number in compact feature statuses");
+    }
+
+    private static void writeLong(ByteArrayOutputStream output, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            output.write((int) (value >>> shift));
+        }
+    }
+}
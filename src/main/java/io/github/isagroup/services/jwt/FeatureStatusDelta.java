@@ -0,0 +1,152 @@
+package io.github.isagroup.services.jwt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import io.github.isagroup.models.FeatureStatus;
+
+/**
+ * Differences between two sets of feature statuses, carried by delta pricing
+ * tokens instead of the status of every feature.
+ *
+ * A delta token references the statuses it was computed against by their
+ * {@link FeatureStatusFingerprint}, and only holds the statuses that changed
+ * since then. Features that no longer exist are mapped to {@code null}.
+ */
+public final class FeatureStatusDelta {
+
+    /**
+     * Name of the claim of the pricing token that holds the changed statuses
+     */
+    public static final String CLAIM = "deltaFeatures";
+
+    /**
+     * Name of the claim of the pricing token that holds the fingerprint of the
+     * statuses the delta was computed against
+     */
+    public static final String BASE_CLAIM = "deltaBase";
+
+    /**
+     * Name of the claim of the pricing token that holds the version of the
+     * pricing snapshot the statuses were computed with
+     */
+    public static final String SNAPSHOT_VERSION_CLAIM = "snapshotVersion";
+
+    private FeatureStatusDelta() {
+    }
+
+    /**
+     * Computes the statuses that changed from one set of feature statuses to
+     * another.
+     *
+     * @param baseFeatureStatuses    the statuses known by the client
+     * @param currentFeatureStatuses the statuses just computed
+     * @return The statuses that are new or different, and {@code null} for the
+     *         features that were removed, indexed by feature name
+     */
+    public static Map<String, FeatureStatus> of(Map<String, FeatureStatus> baseFeatureStatuses,
+            Map<String, FeatureStatus> currentFeatureStatuses) {
+
+        Map<String, FeatureStatus> delta = new LinkedHashMap<>();
+
+        for (Map.Entry<String, FeatureStatus> featureStatus : currentFeatureStatuses.entrySet()) {
+            if (!sameStatus(baseFeatureStatuses.get(featureStatus.getKey()), featureStatus.getValue())) {
+                delta.put(featureStatus.getKey(), featureStatus.getValue());
+            }
+        }
+
+        for (String featureName : baseFeatureStatuses.keySet()) {
+            if (!currentFeatureStatuses.containsKey(featureName)) {
+                delta.put(featureName, null);
+            }
+        }
+
+        return delta;
+    }
+
+    /**
+     * Applies a delta to a set of feature statuses.
+     *
+     * @param baseFeatureStatuses the statuses the delta was computed against
+     * @param delta               the changed statuses
+     * @return A new map with the merged statuses, indexed by feature name
+     */
+    public static Map<String, FeatureStatus> merge(Map<String, FeatureStatus> baseFeatureStatuses,
+            Map<String, FeatureStatus> delta) {
+
+        Map<String, FeatureStatus> merged = new LinkedHashMap<>(baseFeatureStatuses);
+
+        for (Map.Entry<String, FeatureStatus> featureStatus : delta.entrySet()) {
+            if (featureStatus.getValue() == null) {
+                merged.remove(featureStatus.getKey());
+            } else {
+                merged.put(featureStatus.getKey(), featureStatus.getValue());
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Reads feature statuses from the claims of a pricing token, where each
+     * status is a map with its {@code eval}, {@code used} and {@code limit}
+     * values. Evaluations that are not booleans, such as expressions added
+     * with {@code PricingEvaluatorUtil#addExpressionToToken}, are read as
+     * {@code null}.
+     *
+     * @param features the features claim of a pricing token
+     * @return The feature statuses, indexed by feature name, or {@code null} if
+     *         no claim was given
+     */
+    public static Map<String, FeatureStatus> toFeatureStatuses(Map<String, Map<String, Object>> features) {
+
+        if (features == null) {
+            return null;
+        }
+
+        Map<String, FeatureStatus> featureStatuses = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Map<String, Object>> feature : features.entrySet()) {
+
+            if (feature.getValue() == null) {
+                featureStatuses.put(feature.getKey(), null);
+                continue;
+            }
+
+            FeatureStatus featureStatus = new FeatureStatus();
+            Object eval = feature.getValue().get("eval");
+            featureStatus.setEval(eval instanceof Boolean ? (Boolean) eval : null);
+            featureStatus.setUsed(feature.getValue().get("used"));
+            featureStatus.setLimit(feature.getValue().get("limit"));
+            featureStatuses.put(feature.getKey(), featureStatus);
+        }
+
+        return featureStatuses;
+    }
+
+    private static boolean sameStatus(FeatureStatus base, FeatureStatus current) {
+
+        if (base == null || current == null) {
+            return base == current;
+        }
+
+        return Objects.equals(base.getEval(), current.getEval()) && sameValue(base.getUsed(), current.getUsed())
+                && sameValue(base.getLimit(), current.getLimit());
+    }
+
+    // Integers read back from a token may have a different type than the ones
+    // of the user and plan contexts
+    private static boolean sameValue(Object base, Object current) {
+
+        if (isIntegral(base) && isIntegral(current)) {
+            return ((Number) base).longValue() == ((Number) current).longValue();
+        }
+
+        return Objects.equals(base, current);
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.isagroup.services.jwt;
+
+import java.util.Map;
+
+import io.github.isagroup.models.FeatureStatus;
+
+/**
+ * Computes a 64-bit fingerprint of evaluated feature statuses, used to find
+ * out whether the statuses carried by a pricing token are still up to date
+ * without signing and comparing a new token.
+ *
+ * Each status is hashed with FNV-1a over its name, evaluation, used and limit
+ * values, and the hashes are combined so the result does not depend on the
+ * iteration order of the map. The fingerprint only depends on the values, so
+ * it is stable between JVMs and restarts.
+ */
+public final class FeatureStatusFingerprint {
+
+    /**
+     * Name of the claim of the pricing token that holds the fingerprint of its
+     * feature statuses
+     */
+    public static final String CLAIM = "featuresFingerprint";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private FeatureStatusFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of the given feature statuses.
+     *
+     * @param featureStatuses the status of each feature, indexed by feature name
+     * @return The fingerprint, as an hexadecimal string
+     */
+    public static String of(Map<String, FeatureStatus> featureStatuses) {
+        long fingerprint = featureStatuses.size();
+
+        for (Map.Entry<String, FeatureStatus> featureStatus : featureStatuses.entrySet()) {
+            long hash = hash(FNV_OFFSET_BASIS, featureStatus.getKey());
+            FeatureStatus status = featureStatus.getValue();
+
+            if (status != null) {
+                hash = hash(hash, status.getEval());
+                hash = hash(hash, status.getUsed());
+                hash = hash(hash, status.getLimit());
+            }
+
+            fingerprint += mix(hash);
+        }
+
+        return Long.toHexString(fingerprint);
+    }
+
+    private static long hash(long hash, Object value) {
+
+        if (value == null) {
+            return hashByte(hash, 0);
+        }
+
+        if (value instanceof Boolean) {
+            return hashByte(hashByte(hash, 1), (Boolean) value ? 1 : 0);
+        }
+
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return hashLong(hashByte(hash, 2), ((Number) value).longValue());
+        }
+
+        if (value instanceof Double || value instanceof Float) {
+            return hashLong(hashByte(hash, 3), Double.doubleToLongBits(((Number) value).doubleValue()));
+        }
+
+        String text = value.toString();
+        hash = hashLong(hashByte(hash, 4), text.length());
+
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            hash = hashByte(hashByte(hash, character >>> 8), character);
+        }
+
+        return hash;
+    }
+
+    private static long hashLong(long hash, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            hash = hashByte(hash, (int) (value >>> shift));
+        }
+        return hash;
+    }
+
+    private static long hashByte(long hash, int value) {
+        return (hash ^ (value & 0xff)) * FNV_PRIME;
+    }
+
+    // Finalizer of MurmurHash3, spreads the bits of each hash before adding it
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
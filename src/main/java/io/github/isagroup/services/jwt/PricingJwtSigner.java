@@ -0,0 +1,94 @@
+package io.github.isagroup.services.jwt;
+
+import java.security.Key;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.bind.DatatypeConverter;
+
+import io.github.isagroup.utils.LruCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+
+/**
+ * Signs and verifies pricing JWTs with jjwt without deriving the key from the
+ * secret on each token.
+ *
+ * The key of each secret is derived once, the same way
+ * {@link JwtBuilder#signWith(SignatureAlgorithm, String)} does, and kept
+ * along with a parser configured with it. Tokens are the same as the ones
+ * signed with the plain secret, and HS256 and HS384 tokens are verified as
+ * before.
+ */
+public final class PricingJwtSigner {
+
+    private static final SignatureAlgorithm ALGORITHM = SignatureAlgorithm.HS512;
+
+    // Applications use one or two secrets, the bound only protects from
+    // secrets that change on every call
+    private static final LruCache<String, SigningKey> SIGNING_KEYS = new LruCache<>(16);
+
+    private PricingJwtSigner() {
+    }
+
+    /**
+     * Returns a builder of a JWT signed with HS512 and the key of the given
+     * secret.
+     *
+     * @param secret the Base64-encoded JWT secret, as returned by
+     *               {@link io.github.isagroup.PricingContext#getJwtSecret()}
+     * @return A new {@link JwtBuilder}
+     * @throws IllegalArgumentException if the secret is null or empty
+     */
+    public static JwtBuilder builder(String secret) {
+        return Jwts.builder().signWith(ALGORITHM, getSigningKey(secret).key);
+    }
+
+    /**
+     * Verifies a JWT signed with an HMAC algorithm and the key of the given
+     * secret, and returns its claims.
+     *
+     * @param secret the Base64-encoded JWT secret
+     * @param token  the JWT
+     * @return The claims of the token
+     * @throws IllegalArgumentException if the secret or the token are null or
+     *                                  empty
+     * @throws MalformedJwtException    if the token is not a valid JWS
+     * @throws UnsupportedJwtException  if the token is not a signed claims JWT
+     * @throws SignatureException       if the signature does not match
+     * @throws ExpiredJwtException      if the token has expired
+     */
+    public static Claims parseClaims(String secret, String token) {
+        return getSigningKey(secret).parser.parseClaimsJws(token).getBody();
+    }
+
+    private static SigningKey getSigningKey(String secret) {
+
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("base64-encoded secret key cannot be null or empty.");
+        }
+
+        return SIGNING_KEYS.computeIfAbsent(secret, SigningKey::new);
+    }
+
+    private static final class SigningKey {
+
+        private final Key key;
+
+        // The parser keeps no state between tokens once it is configured
+        private final JwtParser parser;
+
+        private SigningKey(String secret) {
+            // Decoded with the same codec as jjwt, so both derive the same key
+            // from secrets that are not strict Base64
+            this.key = new SecretKeySpec(DatatypeConverter.parseBase64Binary(secret), ALGORITHM.getJcaName());
+            this.parser = Jwts.parser().setSigningKey(key);
+        }
+    }
+}
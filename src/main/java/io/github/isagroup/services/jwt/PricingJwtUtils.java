@@ -1,5 +1,9 @@
 package io.github.isagroup.services.jwt;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -11,10 +15,10 @@ import org.springframework.stereotype.Component;
 
 import io.github.isagroup.PricingContext;
 import io.github.isagroup.PricingEvaluatorUtil;
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.utils.LruCache;
 import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.SignatureException;
 import io.jsonwebtoken.UnsupportedJwtException;
 
@@ -27,12 +31,59 @@ public class PricingJwtUtils {
 	@Autowired
 	private PricingContext pricingContext;
 
+	private final LruCache<String, CachedToken> verifiedTokens;
+
 	public PricingJwtUtils(PricingContext pricingContext) {
 		this.pricingContext = pricingContext;
+		this.verifiedTokens = new LruCache<>(pricingContext.getTokenCacheSize());
 	}
 
 	private static final Logger logger = LoggerFactory.getLogger(PricingJwtUtils.class);
 
+	private static final ThreadLocal<MessageDigest> TOKEN_DIGEST = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	});
+
+	/**
+	 * Verifies the given pricing JWT and returns a handle to its claims, so they
+	 * can be read without verifying the token again.
+	 * 
+	 * Verified tokens are kept in a bounded cache, keyed by a digest of the
+	 * token, whose size is given by {@link PricingContext#getTokenCacheSize()}.
+	 * A cached token is only reused while it has not expired and the JWT secret
+	 * has not changed.
+	 * 
+	 * @param token a JWT generated by
+	 *              {@link PricingEvaluatorUtil#generateUserToken()} method
+	 * @return The verified content of the token
+	 * @throws io.jsonwebtoken.JwtException if the token is not valid
+	 */
+	public PricingToken parseToken(String token) {
+
+		String jwtSecret = pricingContext.getJwtSecret();
+
+		if (token == null || token.isEmpty()) {
+			return new PricingToken(PricingJwtSigner.parseClaims(jwtSecret, token));
+		}
+
+		String digest = digest(token);
+		CachedToken cached = verifiedTokens.get(digest);
+
+		if (cached != null && cached.jwtSecret.equals(jwtSecret)
+				&& !cached.pricingToken.isExpired(System.currentTimeMillis())) {
+			return cached.pricingToken;
+		}
+
+		PricingToken pricingToken = new PricingToken(PricingJwtSigner.parseClaims(jwtSecret, token));
+		verifiedTokens.put(digest, new CachedToken(jwtSecret, pricingToken));
+
+		return pricingToken;
+	}
+
 	/**
 	 * Extracts the subject from the given JWT.
 	 * 
@@ -40,7 +91,7 @@ public class PricingJwtUtils {
 	 * @return The subject of the JWT
 	 */
 	public String getSubjectFromJwtToken(String token) {
-		return Jwts.parser().setSigningKey(pricingContext.getJwtSecret()).parseClaimsJws(token).getBody().getSubject();
+		return parseToken(token).getSubject();
 	}
 
 	/**
@@ -52,9 +103,9 @@ public class PricingJwtUtils {
 	 */
 	public String generateTokenFromUsername(String username) {
 		Map<String, Object> claims = new HashMap<>();
-		return Jwts.builder().setClaims(claims).setSubject(username).setIssuedAt(new Date())
-				.setExpiration(new Date((new Date()).getTime() + pricingContext.getJwtExpiration()))
-				.signWith(SignatureAlgorithm.HS512, pricingContext.getJwtSecret()).compact();
+		return PricingJwtSigner.builder(pricingContext.getJwtSecret()).setClaims(claims).setSubject(username)
+				.setIssuedAt(new Date())
+				.setExpiration(new Date((new Date()).getTime() + pricingContext.getJwtExpiration())).compact();
 	}
 
 	/**
@@ -64,11 +115,90 @@ public class PricingJwtUtils {
 	 * @param token a JWT generated by
 	 *              {@link PricingEvaluatorUtil#generateUserToken()} method
 	 * @return A Map that contains the evaluation of all the features for the
-	 *         current user located in the JWT body
+	 *         current user located in the JWT body. The map is a copy that the
+	 *         caller may modify.
 	 */
 	public Map<String, Map<String, Object>> getFeaturesFromJwtToken(String token) {
-		return (Map<String, Map<String, Object>>) Jwts.parser().setSigningKey(pricingContext.getJwtSecret())
-				.parseClaimsJws(token).getBody().get("features");
+		return PricingToken.copy(parseToken(token).getFeatures());
+	}
+
+	/**
+	 * Extracts the feature statuses from a JWT generated by
+	 * {@link PricingEvaluatorUtil#generateUserToken()} method in
+	 * {@link TokenFormat#COMPACT} format
+	 * 
+	 * @param token a JWT generated by
+	 *              {@link PricingEvaluatorUtil#generateUserToken()} method
+	 * @return A Map that contains the status of all the features for the current
+	 *         user, or null if the token is not compact or was generated for a
+	 *         pricing configuration with different features
+	 */
+	public Map<String, FeatureStatus> getFeatureStatusesFromCompactToken(String token) {
+		Object compactFeatures = parseToken(token).getClaim(CompactFeatureCodec.CLAIM);
+
+		if (!(compactFeatures instanceof String)) {
+			return null;
+		}
+
+		return CompactFeatureCodec.decode((String) compactFeatures, pricingContext.getPricingSnapshot());
+	}
+
+	/**
+	 * Reconstructs the status of every feature from a JWT generated by
+	 * {@link PricingEvaluatorUtil#generateUserDeltaToken(Map, String)} method
+	 * and the statuses it was computed against.
+	 * 
+	 * @param baseFeatureStatuses the statuses known by the client, read from a
+	 *                            complete token or merged from a previous delta
+	 * @param deltaToken          a JWT generated by
+	 *                            {@link PricingEvaluatorUtil#generateUserDeltaToken(Map, String)}
+	 *                            method
+	 * @return A Map that contains the status of all the features for the current
+	 *         user, or null if the token is not a delta of the given statuses
+	 */
+	public Map<String, FeatureStatus> mergeDeltaToken(Map<String, FeatureStatus> baseFeatureStatuses,
+			String deltaToken) {
+
+		PricingToken pricingToken = parseToken(deltaToken);
+		Object baseFingerprint = pricingToken.getClaim(FeatureStatusDelta.BASE_CLAIM);
+
+		if (baseFeatureStatuses == null || !(baseFingerprint instanceof String)
+				|| !baseFingerprint.equals(FeatureStatusFingerprint.of(baseFeatureStatuses))) {
+			return null;
+		}
+
+		@SuppressWarnings("unchecked")
+		Map<String, FeatureStatus> delta = FeatureStatusDelta
+				.toFeatureStatuses((Map<String, Map<String, Object>>) pricingToken.getClaim(FeatureStatusDelta.CLAIM));
+
+		if (delta == null) {
+			return null;
+		}
+
+		Map<String, FeatureStatus> merged = FeatureStatusDelta.merge(baseFeatureStatuses, delta);
+
+		if (!FeatureStatusFingerprint.of(merged).equals(pricingToken.getClaim(FeatureStatusFingerprint.CLAIM))) {
+			return null;
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Reconstructs the status of every feature from a JWT generated by
+	 * {@link PricingEvaluatorUtil#generateUserDeltaToken(Map, String)} method
+	 * and the complete token it was computed against.
+	 * 
+	 * @param baseToken  a JWT generated by
+	 *                   {@link PricingEvaluatorUtil#generateUserToken()} method
+	 * @param deltaToken a JWT generated by
+	 *                   {@link PricingEvaluatorUtil#generateUserDeltaToken(Map, String)}
+	 *                   method
+	 * @return A Map that contains the status of all the features for the current
+	 *         user, or null if the token is not a delta of the base token
+	 */
+	public Map<String, FeatureStatus> mergeDeltaToken(String baseToken, String deltaToken) {
+		return mergeDeltaToken(FeatureStatusDelta.toFeatureStatuses(parseToken(baseToken).getFeatures()), deltaToken);
 	}
 
 	/**
@@ -78,11 +208,11 @@ public class PricingJwtUtils {
 	 * @param token a JWT generated by
 	 *              {@link PricingEvaluatorUtil#generateUserToken()} method
 	 * @return A Map that contains the plan context used in the evaluation of
-	 *         features located in the JWT body
+	 *         features located in the JWT body. The map is a copy that the
+	 *         caller may modify.
 	 */
 	public Map<String, Object> getPlanContextFromJwtToken(String token) {
-		return (Map<String, Object>) Jwts.parser().setSigningKey(pricingContext.getJwtSecret()).parseClaimsJws(token)
-				.getBody().get("planContext");
+		return PricingToken.copy(parseToken(token).getPlanContext());
 	}
 
 	/**
@@ -92,11 +222,11 @@ public class PricingJwtUtils {
 	 * @param token a JWT generated by
 	 *              {@link PricingEvaluatorUtil#generateUserToken()} method
 	 * @return A Map that contains the user context used in the evaluation of
-	 *         features located in the JWT body
+	 *         features located in the JWT body. The map is a copy that the
+	 *         caller may modify.
 	 */
 	public Map<String, Object> getUserContextFromJwtToken(String token) {
-		return (Map<String, Object>) Jwts.parser().setSigningKey(pricingContext.getJwtSecret()).parseClaimsJws(token)
-				.getBody().get("userContext");
+		return PricingToken.copy(parseToken(token).getUserContext());
 	}
 
 	/**
@@ -109,7 +239,7 @@ public class PricingJwtUtils {
 	 * @return The username of the user located in the JWT body
 	 */
 	public String getUserNameFromJwtToken(String token) {
-		return Jwts.parser().setSigningKey(pricingContext.getJwtSecret()).parseClaimsJws(token).getBody().getSubject();
+		return parseToken(token).getSubject();
 	}
 
 	/**
@@ -121,7 +251,7 @@ public class PricingJwtUtils {
 	 */
 	public boolean validateJwtToken(String authToken) {
 		try {
-			Jwts.parser().setSigningKey(pricingContext.getAuthJwtSecret()).parseClaimsJws(authToken);
+			PricingJwtSigner.parseClaims(pricingContext.getAuthJwtSecret(), authToken);
 			return true;
 		} catch (SignatureException e) {
 			logger.error("Invalid JWT signature: {}", e.getMessage());
@@ -137,4 +267,21 @@ public class PricingJwtUtils {
 
 		return false;
 	}
+
+	private static String digest(String token) {
+		MessageDigest digest = TOKEN_DIGEST.get();
+		digest.reset();
+		return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	private static class CachedToken {
+
+		private final String jwtSecret;
+		private final PricingToken pricingToken;
+
+		private CachedToken(String jwtSecret, PricingToken pricingToken) {
+			this.jwtSecret = jwtSecret;
+			this.pricingToken = pricingToken;
+		}
+	}
 }
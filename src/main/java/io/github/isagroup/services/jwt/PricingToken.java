@@ -0,0 +1,115 @@
+package io.github.isagroup.services.jwt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.isagroup.PricingEvaluatorUtil;
+import io.jsonwebtoken.Claims;
+
+/**
+ * Verified content of a JWT generated by
+ * {@link PricingEvaluatorUtil#generateUserToken()}.
+ *
+ * The signature of the token is checked once, when it is parsed by
+ * {@link PricingJwtUtils#parseToken(String)}, and its claims can then be read
+ * as many times as needed. The claims are exposed as read-only views, since a
+ * parsed token may be shared through the cache of verified tokens. The
+ * getters of {@link PricingJwtUtils} return modifiable copies of them instead.
+ */
+public final class PricingToken {
+
+    private final String subject;
+    private final Date expiration;
+    private final Map<String, Object> claims;
+
+    PricingToken(Claims claims) {
+        this.subject = claims.getSubject();
+        this.expiration = claims.getExpiration();
+        this.claims = freeze((Map<String, Object>) claims);
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    /**
+     * Returns whether the token has expired at the given instant.
+     *
+     * @param now the current time in milliseconds
+     * @return true if the token has an expiration date earlier than {@code now}
+     */
+    public boolean isExpired(long now) {
+        return expiration != null && expiration.getTime() < now;
+    }
+
+    public Object getClaim(String name) {
+        return claims.get(name);
+    }
+
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Object>> getFeatures() {
+        return (Map<String, Map<String, Object>>) claims.get("features");
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getPlanContext() {
+        return (Map<String, Object>) claims.get("planContext");
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getUserContext() {
+        return (Map<String, Object>) claims.get("userContext");
+    }
+
+    /**
+     * @param value a claim of a token
+     * @return A deep copy of the claim whose maps and lists can be modified
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T copy(T value) {
+
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            ((Map<Object, Object>) value).forEach((key, entry) -> copy.put(key, copy(entry)));
+            return (T) copy;
+        }
+
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            ((List<Object>) value).forEach(entry -> copy.add(copy(entry)));
+            return (T) copy;
+        }
+
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T freeze(T value) {
+
+        if (value instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) value;
+            map.replaceAll((key, entry) -> freeze(entry));
+            return (T) Collections.unmodifiableMap(map);
+        }
+
+        if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            list.replaceAll(PricingToken::freeze);
+            return (T) Collections.unmodifiableList(list);
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.isagroup.services.jwt;
+
+/**
+ * Formats in which the feature statuses of a pricing token can be written
+ */
+public enum TokenFormat {
+    /**
+     * The token carries the plan context and a map with the status of each
+     * feature, as expected by Pricing4React
+     */
+    FULL,
+    /**
+     * The token carries the feature statuses in a compact binary claim, decoded
+     * with {@link PricingJwtUtils#getFeatureStatusesFromCompactToken(String)},
+     * and does not carry the plan context
+     */
+    COMPACT
+}
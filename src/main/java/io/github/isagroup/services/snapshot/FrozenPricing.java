@@ -0,0 +1,144 @@
+package io.github.isagroup.services.snapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.isagroup.models.Feature;
+import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.models.UsageLimit;
+import io.github.isagroup.models.ValueType;
+
+/**
+ * Read-optimized view of a {@link PricingManager}, built once per pricing
+ * snapshot.
+ *
+ * Every feature and usage limit gets a stable ordinal, its position in the
+ * pricing configuration, along with its value type. Names are resolved to
+ * ordinals once, at the edges, so hot paths such as the evaluation of
+ * {@link io.github.isagroup.annotations.PricingPlanAware} methods or the
+ * compact tokens only index arrays. The {@link PricingManager} is still the
+ * model to edit pricing configurations with, and plan values are read from
+ * the plan contexts of the snapshot.
+ */
+public final class FrozenPricing {
+
+    private static final FrozenPricing EMPTY = new FrozenPricing(new Ordinals(null), new Ordinals(null));
+
+    private final Ordinals features;
+    private final Ordinals usageLimits;
+
+    private FrozenPricing(Ordinals features, Ordinals usageLimits) {
+        this.features = features;
+        this.usageLimits = usageLimits;
+    }
+
+    /**
+     * Builds the frozen view of a pricing configuration. The configuration
+     * must not be modified afterwards.
+     *
+     * @param pricingManager the pricing configuration
+     * @return The frozen view of the configuration
+     */
+    public static FrozenPricing of(PricingManager pricingManager) {
+
+        if (pricingManager == null) {
+            return EMPTY;
+        }
+
+        return new FrozenPricing(new Ordinals(pricingManager.getFeatures()),
+                new Ordinals(pricingManager.getUsageLimits()));
+    }
+
+    /**
+     * @param featureName the name of a feature
+     * @return The ordinal of the feature, or -1 if it does not exist
+     */
+    public int getFeatureOrdinal(String featureName) {
+        return features.getOrdinal(featureName);
+    }
+
+    /**
+     * @param usageLimitName the name of a usage limit
+     * @return The ordinal of the usage limit, or -1 if it does not exist
+     */
+    public int getUsageLimitOrdinal(String usageLimitName) {
+        return usageLimits.getOrdinal(usageLimitName);
+    }
+
+    /**
+     * @return The names of the features, ordered by ordinal
+     */
+    public List<String> getFeatureNames() {
+        return features.names;
+    }
+
+    /**
+     * @return The names of the usage limits, ordered by ordinal
+     */
+    public List<String> getUsageLimitNames() {
+        return usageLimits.names;
+    }
+
+    /**
+     * @param ordinal the ordinal of a feature
+     * @return The value type of the feature
+     */
+    public ValueType getFeatureValueType(int ordinal) {
+        return features.valueTypes[ordinal];
+    }
+
+    /**
+     * @param ordinal the ordinal of a usage limit
+     * @return The value type of the usage limit
+     */
+    public ValueType getUsageLimitValueType(int ordinal) {
+        return usageLimits.valueTypes[ordinal];
+    }
+
+    /**
+     * Ordinals of the features or the usage limits of the configuration
+     */
+    private static final class Ordinals {
+
+        private final List<String> names;
+        private final Map<String, Integer> ordinals;
+        private final ValueType[] valueTypes;
+
+        private Ordinals(Map<String, ?> definitions) {
+
+            List<String> names = new ArrayList<>();
+            Map<String, Integer> ordinals = new HashMap<>();
+            List<ValueType> valueTypes = new ArrayList<>();
+
+            if (definitions != null) {
+                for (Map.Entry<String, ?> definition : definitions.entrySet()) {
+                    ordinals.put(definition.getKey(), names.size());
+                    names.add(definition.getKey());
+                    valueTypes.add(getValueType(definition.getValue()));
+                }
+            }
+
+            this.names = Collections.unmodifiableList(names);
+            this.ordinals = ordinals;
+            this.valueTypes = valueTypes.toArray(new ValueType[0]);
+        }
+
+        private int getOrdinal(String name) {
+            Integer ordinal = ordinals.get(name);
+            return ordinal == null ? -1 : ordinal;
+        }
+
+        private static ValueType getValueType(Object definition) {
+            if (definition instanceof Feature) {
+                return ((Feature) definition).getValueType();
+            }
+            if (definition instanceof UsageLimit) {
+                return ((UsageLimit) definition).getValueType();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package io.github.isagroup.services.snapshot;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.isagroup.PricingContext;
+import io.github.isagroup.exceptions.FilepathException;
+import io.github.isagroup.services.yaml.YamlUtils;
+
+/**
+ * Watches the pricing configuration file of a {@link PricingContext} and
+ * reloads its {@link PricingSnapshot} whenever the file changes.
+ *
+ * Bursts of write events (e.g. an editor saving the file in several steps)
+ * are debounced, and the new configuration is parsed on a background thread.
+ * If the parsing succeeds, the new snapshot replaces the previous one with a
+ * single atomic swap; evaluations that are already running keep the snapshot
+ * they started with. If it fails, the previous snapshot stays in use.
+ *
+ * Listeners added with {@link #addReloadListener(ReloadListener)} are told of
+ * each reload attempt once it has finished.
+ *
+ * The watcher is meant to be registered as a bean, e.g.
+ * {@code @Bean(initMethod = "start", destroyMethod = "close")}.
+ */
+public class PricingConfigWatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingConfigWatcher.class);
+
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 250;
+
+    private final PricingContext pricingContext;
+    private final long debounceMillis;
+    private final List<ReloadListener> reloadListeners = new CopyOnWriteArrayList<>();
+
+    private WatchService watchService;
+    private ScheduledExecutorService reloadExecutor;
+    private Thread watchThread;
+    private ScheduledFuture<?> pendingReload;
+
+    public PricingConfigWatcher(PricingContext pricingContext) {
+        this(pricingContext, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public PricingConfigWatcher(PricingContext pricingContext, long debounceMillis) {
+        this.pricingContext = pricingContext;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Adds a listener that is called on the reloading thread after each
+     * reload of the configuration file, whether it succeeds or not.
+     *
+     * @param reloadListener the listener to add
+     */
+    public void addReloadListener(ReloadListener reloadListener) {
+        reloadListeners.add(reloadListener);
+    }
+
+    /**
+     * Starts watching the configuration file returned by
+     * {@link PricingContext#getConfigFilePath()}. The file is resolved when this
+     * method is called.
+     *
+     * @throws FilepathException if the directory of the configuration file
+     *                           cannot be watched
+     */
+    public synchronized void start() {
+
+        if (watchThread != null) {
+            return;
+        }
+
+        Path configFile = YamlUtils.resolveConfigPath(pricingContext.getConfigFilePath()).toAbsolutePath();
+        Path directory = configFile.getParent();
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new FilepathException("The directory of the pricing configuration file cannot be watched: "
+                    + directory);
+        }
+
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pricing-config-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        watchThread = new Thread(() -> watch(configFile.getFileName()), "pricing-config-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Stops watching the configuration file. Reloads that are already running
+     * are allowed to finish.
+     */
+    @Override
+    public synchronized void close() {
+
+        if (watchThread == null) {
+            return;
+        }
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Error while closing the pricing configuration watcher: {}", e.getMessage());
+        }
+
+        reloadExecutor.shutdown();
+        watchThread.interrupt();
+        watchThread = null;
+    }
+
+    private void watch(Path fileName) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+
+                boolean configChanged = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        configChanged = true;
+                    }
+                }
+
+                if (configChanged) {
+                    scheduleReload();
+                }
+
+                if (!key.reset()) {
+                    logger.warn("The directory of the pricing configuration is no longer accessible");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void scheduleReload() {
+
+        if (reloadExecutor.isShutdown()) {
+            return;
+        }
+
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
+        }
+
+        pendingReload = reloadExecutor.schedule(this::reload, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void reload() {
+
+        PricingSnapshot snapshot = null;
+        RuntimeException failure = null;
+
+        try {
+            snapshot = pricingContext.reloadPricingManager();
+            logger.info("Pricing configuration {} reloaded (version {})", snapshot.getConfigFilePath(),
+                    snapshot.getVersion());
+        } catch (RuntimeException e) {
+            failure = e;
+            logger.error("The pricing configuration could not be reloaded, the previous one is kept: {}",
+                    e.getMessage());
+        }
+
+        for (ReloadListener reloadListener : reloadListeners) {
+            try {
+                reloadListener.reloaded(snapshot, failure);
+            } catch (RuntimeException e) {
+                logger.warn("Error in a pricing configuration reload listener: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Listener of the reloads of the configuration file.
+     */
+    @FunctionalInterface
+    public interface ReloadListener {
+
+        /**
+         * @param snapshot the published snapshot, or {@code null} if the reload
+         *                 failed
+         * @param failure  why the reload failed, or {@code null} if it
+         *                 succeeded
+         */
+        void reloaded(PricingSnapshot snapshot, RuntimeException failure);
+    }
+}
@@ -0,0 +1,293 @@
+package io.github.isagroup.services.snapshot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.expression.ParseException;
+
+import io.github.isagroup.models.Feature;
+import io.github.isagroup.models.Plan;
+import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.models.UsageLimit;
+import io.github.isagroup.services.evaluation.DependencyIndex;
+import io.github.isagroup.services.evaluation.EntitlementMatrix;
+import io.github.isagroup.services.evaluation.EvaluationMode;
+import io.github.isagroup.services.evaluation.ExpressionCache;
+import io.github.isagroup.services.evaluation.PricingExpression;
+import io.github.isagroup.services.yaml.YamlUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Immutable, versioned view of a pricing configuration. A snapshot is built
+ * once from the configuration file and then shared by every evaluation that
+ * runs against it, so the YAML file is not parsed on each request.
+ *
+ * Snapshots are never modified after creation. The parsed configuration is
+ * never handed out, {@link #getPricingManager()} returns a copy of it. When
+ * the configuration changes, a new snapshot with a higher version is built
+ * and published in place of the previous one.
+ */
+@Getter
+public final class PricingSnapshot {
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version;
+    private final String configFilePath;
+    @Getter(AccessLevel.NONE)
+    private final PricingManager pricingManager;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, String> featureExpressions;
+    private final ExpressionCache expressions;
+    private final EntitlementMatrix entitlements;
+    private final DependencyIndex dependencies;
+    private final Map<String, Map<String, Object>> planContexts;
+    private final FrozenPricing frozenPricing;
+    @Getter(AccessLevel.NONE)
+    private final String[] serverExpressionTexts;
+    @Getter(AccessLevel.NONE)
+    private final PricingExpression[] serverExpressions;
+    private final long loadedAt;
+
+    private PricingSnapshot(String configFilePath, PricingManager pricingManager, EvaluationMode evaluationMode) {
+        this.version = VERSIONS.incrementAndGet();
+        this.configFilePath = configFilePath;
+        this.pricingManager = pricingManager;
+        this.featureExpressions = buildFeatureExpressions(pricingManager);
+        this.expressions = ExpressionCache.of(pricingManager, evaluationMode);
+        this.entitlements = EntitlementMatrix.of(pricingManager, expressions);
+        this.dependencies = DependencyIndex.of(pricingManager, expressions);
+        this.planContexts = buildPlanContexts(pricingManager);
+        this.frozenPricing = FrozenPricing.of(pricingManager);
+        this.serverExpressionTexts = buildServerExpressionTexts(pricingManager, frozenPricing);
+        this.serverExpressions = buildServerExpressions(serverExpressionTexts, expressions);
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Parses the YAML file located in {@code configFilePath} and builds a new
+     * snapshot from its content.
+     *
+     * @param configFilePath Path of the YAML file, relative to the resources
+     *                       folder
+     * @return A new snapshot of the pricing configuration
+     */
+    public static PricingSnapshot load(String configFilePath) {
+        return load(configFilePath, EvaluationMode.INTERPRETED);
+    }
+
+    /**
+     * Parses the YAML file located in {@code configFilePath} and builds a new
+     * snapshot whose expressions will be run using the given evaluation mode.
+     *
+     * @param configFilePath Path of the YAML file, relative to the resources
+     *                       folder
+     * @param evaluationMode how the expressions of the snapshot will be run
+     * @return A new snapshot of the pricing configuration
+     */
+    public static PricingSnapshot load(String configFilePath, EvaluationMode evaluationMode) {
+        return new PricingSnapshot(configFilePath, YamlUtils.retrieveManagerFromYaml(configFilePath),
+                evaluationMode);
+    }
+
+    /**
+     * Builds a new snapshot from a copy of an already parsed
+     * {@link PricingManager}, so the given object can still be modified.
+     *
+     * @param configFilePath Path of the YAML file the pricing was read from
+     * @param pricingManager the parsed pricing configuration
+     * @return A new snapshot of the pricing configuration
+     */
+    public static PricingSnapshot of(String configFilePath, PricingManager pricingManager) {
+        return of(configFilePath, pricingManager, EvaluationMode.INTERPRETED);
+    }
+
+    /**
+     * Builds a new snapshot from a copy of an already parsed
+     * {@link PricingManager}, whose expressions will be run using the given
+     * evaluation mode. The given object can still be modified.
+     *
+     * @param configFilePath Path of the YAML file the pricing was read from
+     * @param pricingManager the parsed pricing configuration
+     * @param evaluationMode how the expressions of the snapshot will be run
+     * @return A new snapshot of the pricing configuration
+     */
+    public static PricingSnapshot of(String configFilePath, PricingManager pricingManager,
+            EvaluationMode evaluationMode) {
+        return new PricingSnapshot(configFilePath, pricingManager == null ? null : pricingManager.copy(),
+                evaluationMode);
+    }
+
+    /**
+     * Returns a copy of the pricing configuration of this snapshot. It is
+     * copied on each call, so it can be modified without affecting the
+     * snapshot; evaluations use the precomputed state of the snapshot
+     * instead.
+     *
+     * @return A copy of the pricing configuration
+     */
+    public PricingManager getPricingManager() {
+        return pricingManager == null ? null : pricingManager.copy();
+    }
+
+    /**
+     * Returns whether this snapshot was built from the given configuration file.
+     *
+     * @param configFilePath Path of the YAML file, relative to the resources
+     *                       folder
+     * @return true if the snapshot was loaded from {@code configFilePath}
+     */
+    public boolean isLoadedFrom(String configFilePath) {
+        return Objects.equals(this.configFilePath, configFilePath);
+    }
+
+    /**
+     * Returns the expression of each feature of the configuration, indexed by
+     * feature name in the order of the configuration. The map cannot be
+     * modified.
+     *
+     * @return The feature expressions, which may be {@code null}
+     */
+    public Map<String, String> getFeatureExpressions() {
+        return featureExpressions;
+    }
+
+    /**
+     * Returns the context against which feature expressions are evaluated for
+     * the users of a plan. The context is built once per snapshot and shared by
+     * every user of the plan, so it cannot be modified.
+     *
+     * @param planName the name of the plan
+     * @return The plan context, or {@code null} if the plan does not exist or
+     *         its context cannot be built
+     */
+    public Map<String, Object> getPlanContext(String planName) {
+        return planContexts.get(planName);
+    }
+
+    /**
+     * Returns the expression that checks a feature on the server side: its
+     * server expression if it has one, or its expression otherwise.
+     *
+     * @param featureOrdinal the ordinal of the feature in the
+     *                       {@link FrozenPricing} of this snapshot
+     * @return The evaluable expression, or {@code null} if the feature has no
+     *         expression
+     * @throws ParseException if the expression is not valid SpEL
+     */
+    public PricingExpression getServerExpression(int featureOrdinal) {
+        PricingExpression serverExpression = serverExpressions[featureOrdinal];
+
+        if (serverExpression != null) {
+            return serverExpression;
+        }
+
+        // Parsed again so that invalid expressions are reported as before
+        return expressions.getPricingExpression(serverExpressionTexts[featureOrdinal]);
+    }
+
+    private static String[] buildServerExpressionTexts(PricingManager pricingManager, FrozenPricing frozenPricing) {
+
+        String[] serverExpressionTexts = new String[frozenPricing.getFeatureNames().size()];
+
+        for (int ordinal = 0; ordinal < serverExpressionTexts.length; ordinal++) {
+            Feature feature = pricingManager.getFeatures().get(frozenPricing.getFeatureNames().get(ordinal));
+
+            if (feature != null) {
+                serverExpressionTexts[ordinal] = feature.getServerExpression() != null
+                        ? feature.getServerExpression()
+                        : feature.getExpression();
+            }
+        }
+
+        return serverExpressionTexts;
+    }
+
+    private static PricingExpression[] buildServerExpressions(String[] serverExpressionTexts,
+            ExpressionCache expressions) {
+
+        PricingExpression[] serverExpressions = new PricingExpression[serverExpressionTexts.length];
+
+        for (int ordinal = 0; ordinal < serverExpressions.length; ordinal++) {
+            try {
+                serverExpressions[ordinal] = expressions.getPricingExpression(serverExpressionTexts[ordinal]);
+            } catch (ParseException e) {
+                // Reported when the feature is evaluated
+            }
+        }
+
+        return serverExpressions;
+    }
+
+    private static Map<String, String> buildFeatureExpressions(PricingManager pricingManager) {
+
+        if (pricingManager == null || pricingManager.getFeatures() == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> featureExpressions = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Feature> feature : pricingManager.getFeatures().entrySet()) {
+            featureExpressions.put(feature.getKey(),
+                    feature.getValue() == null ? null : feature.getValue().getExpression());
+        }
+
+        return Collections.unmodifiableMap(featureExpressions);
+    }
+
+    private static Map<String, Map<String, Object>> buildPlanContexts(PricingManager pricingManager) {
+
+        if (pricingManager == null || pricingManager.getPlans() == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Map<String, Object>> planContexts = new HashMap<>();
+
+        for (Map.Entry<String, Plan> plan : pricingManager.getPlans().entrySet()) {
+
+            // Reported when the plan context is requested at runtime
+            if (!hasPlanContext(plan.getValue())) {
+                continue;
+            }
+
+            Map<String, Object> planContext = plan.getValue().toPlanContext();
+            planContext.replaceAll((key, value) -> value instanceof Map
+                    ? Collections.unmodifiableMap((Map<?, ?>) value)
+                    : value);
+            planContexts.put(plan.getKey(), Collections.unmodifiableMap(planContext));
+        }
+
+        return Collections.unmodifiableMap(planContexts);
+    }
+
+    /**
+     * @param plan a plan of the configuration
+     * @return true if every feature and usage limit of the plan has a value or
+     *         a default value, so {@link Plan#toPlanContext()} can be built
+     */
+    private static boolean hasPlanContext(Plan plan) {
+
+        if (plan == null || plan.getFeatures() == null || plan.getUsageLimits() == null) {
+            return false;
+        }
+
+        for (Feature feature : plan.getFeatures().values()) {
+            if (feature == null || (feature.getValue() == null && feature.getDefaultValue() == null)) {
+                return false;
+            }
+        }
+
+        for (UsageLimit usageLimit : plan.getUsageLimits().values()) {
+            if (usageLimit == null || (usageLimit.getValue() == null && usageLimit.getDefaultValue() == null)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
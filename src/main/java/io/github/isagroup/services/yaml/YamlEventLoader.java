@@ -0,0 +1,210 @@
+package io.github.isagroup.services.yaml;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Loads a YAML document into maps and lists from the parse events of
+ * SnakeYAML.
+ *
+ * {@link org.yaml.snakeyaml.Yaml#load(String)} needs the whole file in memory
+ * as a string, composes a graph of nodes from it and only then builds the
+ * maps and lists. This loader reads the file as a stream and builds the maps
+ * and lists as the events arrive, so neither the file contents nor the node
+ * graph are kept in memory. It still builds the generic document, which
+ * {@link io.github.isagroup.services.parsing.PricingManagerParser} walks
+ * afterwards to build the model. Scalars are resolved and constructed as
+ * SnakeYAML does, so the result is the same. Anchors, aliases and merge keys
+ * are supported. Tags of mappings and sequences are ignored.
+ */
+public final class YamlEventLoader {
+
+    private static final Resolver RESOLVER = new Resolver();
+
+    private static final Object MERGE_KEY = new Object();
+
+    private YamlEventLoader() {
+    }
+
+    /**
+     * Loads the single YAML document of a stream.
+     *
+     * @param input the stream to read, in UTF-8 unless it starts with a BOM
+     * @return The document, made of {@link LinkedHashMap}, {@link ArrayList}
+     *         and scalar values, or {@code null} if the stream is empty
+     * @throws YAMLException if the stream is not valid YAML
+     */
+    public static Object load(InputStream input) {
+
+        LoaderOptions loaderOptions = new LoaderOptions();
+        Parser parser = new ParserImpl(new StreamReader(new UnicodeReader(input)), loaderOptions);
+        ScalarConstructor constructor = new ScalarConstructor(loaderOptions);
+        Map<String, Object> anchors = new HashMap<>();
+        Deque<Container> containers = new ArrayDeque<>();
+
+        Object document = null;
+        boolean documentLoaded = false;
+
+        while (true) {
+            Event event = parser.getEvent();
+            Object value;
+
+            switch (event.getEventId()) {
+                case StreamEnd:
+                    return document;
+                case DocumentStart:
+                    if (documentLoaded) {
+                        throw new YAMLException("expected a single document in the stream");
+                    }
+                    continue;
+                case DocumentEnd:
+                    documentLoaded = true;
+                    continue;
+                case MappingStart:
+                    containers.push(new Container(new LinkedHashMap<>()));
+                    anchor(anchors, event, containers.peek().value);
+                    continue;
+                case SequenceStart:
+                    containers.push(new Container(new ArrayList<>()));
+                    anchor(anchors, event, containers.peek().value);
+                    continue;
+                case MappingEnd:
+                case SequenceEnd:
+                    value = containers.pop().value;
+                    break;
+                case Scalar:
+                    value = constructor.construct((ScalarEvent) event);
+                    anchor(anchors, event, value);
+                    break;
+                case Alias:
+                    String anchor = ((AliasEvent) event).getAnchor();
+                    if (!anchors.containsKey(anchor)) {
+                        throw new YAMLException("found undefined alias " + anchor);
+                    }
+                    value = anchors.get(anchor);
+                    break;
+                default:
+                    continue;
+            }
+
+            if (containers.isEmpty()) {
+                document = value;
+            } else {
+                containers.peek().add(value);
+            }
+        }
+    }
+
+    private static void anchor(Map<String, Object> anchors, Event event, Object value) {
+        String anchor = ((NodeEvent) event).getAnchor();
+
+        if (anchor != null) {
+            anchors.put(anchor, value);
+        }
+    }
+
+    /**
+     * Mapping or sequence being loaded
+     */
+    private static final class Container {
+
+        private final Object value;
+        private Object key;
+        private boolean hasKey;
+
+        private Container(Object value) {
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void add(Object element) {
+
+            if (value instanceof List) {
+                ((List<Object>) value).add(element);
+                return;
+            }
+
+            if (!hasKey) {
+                key = element;
+                hasKey = true;
+                return;
+            }
+
+            Map<Object, Object> map = (Map<Object, Object>) value;
+
+            if (key == MERGE_KEY) {
+                merge(map, element);
+            } else {
+                map.put(key, element);
+            }
+
+            key = null;
+            hasKey = false;
+        }
+
+        // Keys already defined take precedence over merged ones, as in SnakeYAML
+        @SuppressWarnings("unchecked")
+        private static void merge(Map<Object, Object> map, Object merged) {
+
+            if (merged instanceof Map) {
+                for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) merged).entrySet()) {
+                    map.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            } else if (merged instanceof List) {
+                for (Object element : (List<Object>) merged) {
+                    merge(map, element);
+                }
+            } else {
+                throw new YAMLException("expected a mapping or list of mappings for merging, but found " + merged);
+            }
+        }
+    }
+
+    /**
+     * Builds scalar values with the constructors of SnakeYAML, without keeping
+     * track of the nodes
+     */
+    private static final class ScalarConstructor extends SafeConstructor {
+
+        private ScalarConstructor(LoaderOptions loaderOptions) {
+            super(loaderOptions);
+        }
+
+        private Object construct(ScalarEvent event) {
+            String explicitTag = event.getTag();
+            Tag tag = explicitTag == null || "!".equals(explicitTag)
+                    ? RESOLVER.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar())
+                    : new Tag(explicitTag);
+
+            if (Tag.MERGE.equals(tag)) {
+                return MERGE_KEY;
+            }
+
+            ScalarNode node = new ScalarNode(tag, event.getValue(), event.getStartMark(), event.getEndMark(),
+                    event.getScalarStyle());
+            return getConstructor(node).construct(node);
+        }
+    }
+}
@@ -2,7 +2,9 @@ package io.github.isagroup.services.yaml;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
 
@@ -26,25 +28,37 @@ public class YamlUtils {
     /**
      * This method maps the content of the YAML file located in {@code yamlPath}
      * into a {@link PricingManager} object.
+     * The file is loaded into maps and lists by {@link YamlEventLoader}, and the
+     * model is then built from them by {@link PricingManagerParser}.
      * 
      * @param yamlPath Path of the YAML file, relative to the resources folder
      * @return PricingManager object that represents the content of the YAML file
      */
 
+    @SuppressWarnings("unchecked")
     public static PricingManager retrieveManagerFromYaml(String yamlPath) {
-        Yaml yaml = new Yaml();
 
-        try {
-            String result = new String(Files.readAllBytes(Paths.get(DEFAULT_YAML_WRITE_PATH + yamlPath)));
-            Map<String, Object> test = yaml.load(result);
+        try (InputStream input = Files.newInputStream(resolveConfigPath(yamlPath))) {
+            Map<String, Object> configMap = (Map<String, Object>) YamlEventLoader.load(input);
 
-            return PricingManagerParser.parseMapToPricingManager(test);
+            return PricingManagerParser.parseMapToPricingManager(configMap);
 
         } catch (IOException e) {
             throw new FilepathException("Either the file path is invalid or the file does not exist.");
         }
     }
 
+    /**
+     * Resolves the location on disk of a YAML file whose path is given relative
+     * to the resources folder.
+     * 
+     * @param yamlPath Path of the YAML file, relative to the resources folder
+     * @return The path of the YAML file on disk
+     */
+    public static Path resolveConfigPath(String yamlPath) {
+        return Paths.get(DEFAULT_YAML_WRITE_PATH + yamlPath);
+    }
+
     /**
      * Writes a {@link PricingManager} object into a YAML file.
      * 
@@ -0,0 +1,137 @@
+package io.github.isagroup.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache with a maximum number of entries, which evicts the least
+ * recently used entry when full. A capacity of zero disables the cache.
+ *
+ * Entries are spread by hash over up to 16 segments, each with its own lock
+ * and an even share of the capacity, so concurrent hits on different keys
+ * rarely contend. Recency is tracked per segment: the evicted entry is the
+ * least recently used one of its segment.
+ */
+public class LruCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 8;
+
+    private final int capacity;
+    private final Segment<K, V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public LruCache(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+
+        int segmentCount = 1;
+
+        while (segmentCount < MAX_SEGMENTS && this.capacity / (segmentCount * 2) >= MIN_SEGMENT_CAPACITY) {
+            segmentCount *= 2;
+        }
+
+        this.segments = new Segment[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(this.capacity / segmentCount + (i < this.capacity % segmentCount ? 1 : 0));
+        }
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+
+        if (segment.capacity > 0) {
+            synchronized (segment) {
+                segment.put(key, value);
+            }
+        }
+    }
+
+    public void remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the value cached for the given key, computing and caching it if
+     * absent. The value is computed outside the lock, so it may be computed more
+     * than once by concurrent callers.
+     *
+     * @param key             the key of the value
+     * @param mappingFunction computes the value of a key that is not cached
+     * @return the cached or computed value
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Access-ordered map holding the entries of one segment
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
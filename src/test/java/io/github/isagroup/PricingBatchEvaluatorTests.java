@@ -0,0 +1,87 @@
+package io.github.isagroup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.isagroup.models.UserEvaluation;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+
+public class PricingBatchEvaluatorTests {
+
+    private static final String YAML_CONFIG_PATH = "yaml-testing/petclinic.yml";
+
+    private static Map<String, Object> userContext(int pets) {
+        Map<String, Object> userContext = new HashMap<>();
+        userContext.put("username", "user" + pets);
+        userContext.put("pets", pets);
+        return userContext;
+    }
+
+    @Test
+    void batchEvaluationShouldEvaluateEveryUser() {
+
+        PricingBatchEvaluator batchEvaluator = new PricingBatchEvaluator(PricingSnapshot.load(YAML_CONFIG_PATH));
+
+        List<UserEvaluation> evaluations = new ArrayList<>();
+
+        batchEvaluator
+                .evaluate(IntStream.range(0, 1000).mapToObj(pets -> new SimpleEntry<>("ADVANCED", userContext(pets))))
+                .forEachOrdered(evaluations::add);
+
+        assertEquals(1000, evaluations.size(), "Every user should be evaluated");
+
+        for (int pets = 0; pets < evaluations.size(); pets++) {
+            UserEvaluation evaluation = evaluations.get(pets);
+
+            assertTrue(evaluation.isSuccessful(), "Evaluation should not fail");
+            assertEquals(pets, evaluation.getUserContext().get("pets"), "Results should keep the input order");
+            assertEquals(pets < 10, evaluation.getFeatureStatuses().get("maxPets").getEval(),
+                    "maxPets evaluation is not correct for " + pets + " pets");
+            assertTrue(evaluation.getFeatureStatuses().get("haveCalendar").getEval(),
+                    "haveCalendar evaluation should be true");
+        }
+    }
+
+    @Test
+    void batchEvaluationShouldReportUnknownPlans() {
+
+        PricingBatchEvaluator batchEvaluator = new PricingBatchEvaluator(PricingSnapshot.load(YAML_CONFIG_PATH));
+
+        UserEvaluation evaluation = batchEvaluator.evaluate("ENTERPRISE", userContext(1));
+
+        assertFalse(evaluation.isSuccessful(), "Evaluation of an unknown plan should fail");
+        assertEquals(null, evaluation.getFeatureStatuses());
+    }
+
+    @Test
+    void batchEvaluationShouldReportUsersThatCannotBeEvaluated() {
+
+        PricingBatchEvaluator batchEvaluator = new PricingBatchEvaluator(PricingSnapshot.load(YAML_CONFIG_PATH));
+
+        Map<String, Object> invalidUserContext = userContext(1);
+        invalidUserContext.put("pets", "many");
+
+        List<UserEvaluation> evaluations = batchEvaluator
+                .evaluate(Stream.of(new SimpleEntry<>("ADVANCED", userContext(1)),
+                        new SimpleEntry<>("ADVANCED", invalidUserContext),
+                        new SimpleEntry<>("ADVANCED", userContext(2))))
+                .collect(Collectors.toList());
+
+        assertEquals(3, evaluations.size(), "Every user should be evaluated");
+        assertTrue(evaluations.get(0).isSuccessful());
+        assertFalse(evaluations.get(1).isSuccessful(), "A failed expression should only fail its user");
+        assertTrue(evaluations.get(2).isSuccessful());
+    }
+}
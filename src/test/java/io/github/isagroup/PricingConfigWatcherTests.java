@@ -0,0 +1,113 @@
+package io.github.isagroup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.snapshot.PricingConfigWatcher;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+import io.github.isagroup.services.yaml.YamlUtils;
+
+public class PricingConfigWatcherTests {
+
+    private static final String SOURCE_CONFIG_PATH = "pricing/petclinic.yml";
+    private static final String WATCHED_CONFIG_PATH = "yaml-testing/watched-petclinic.yml";
+    // Generous, as some file systems only detect changes by polling
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    private PricingContextTestImpl pricingContext;
+
+    private PricingConfigWatcher watcher;
+
+    // Published snapshots and reload failures, in the order they happen
+    private final BlockingQueue<Object> reloads = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void setUp() {
+
+        YamlUtils.writeYaml(YamlUtils.retrieveManagerFromYaml(SOURCE_CONFIG_PATH), WATCHED_CONFIG_PATH);
+
+        PricingContextTestImpl pricingContext = new PricingContextTestImpl();
+        pricingContext.setConfigFilePath(WATCHED_CONFIG_PATH);
+        pricingContext.setJwtSecret("secret");
+        pricingContext.setJwtExpiration(86400);
+        pricingContext.setUserPlan("BASIC");
+
+        this.pricingContext = pricingContext;
+        this.watcher = new PricingConfigWatcher(pricingContext, 50);
+        this.watcher.addReloadListener(
+                (snapshot, failure) -> reloads.add(snapshot != null ? snapshot : failure));
+        this.watcher.start();
+    }
+
+    @AfterEach
+    void after() {
+        watcher.close();
+        YamlUtils.resolveConfigPath(WATCHED_CONFIG_PATH).toFile().delete();
+    }
+
+    @Test
+    void givenModifiedConfigurationShouldReloadSnapshot() throws InterruptedException {
+
+        PricingSnapshot previous = pricingContext.getPricingSnapshot();
+
+        PricingManager pricingManager = YamlUtils.retrieveManagerFromYaml(WATCHED_CONFIG_PATH);
+        pricingManager.setSaasName("petclinic-reloaded");
+        YamlUtils.writeYaml(pricingManager, WATCHED_CONFIG_PATH);
+
+        PricingSnapshot current = awaitReload(PricingSnapshot.class);
+
+        assertSame(current, pricingContext.getPricingSnapshot(), "The reloaded snapshot was not published");
+
+        assertTrue(current.getVersion() > previous.getVersion(), "The snapshot was not reloaded");
+        assertEquals("petclinic-reloaded", current.getPricingManager().getSaasName());
+        assertEquals("petclinic", previous.getPricingManager().getSaasName(),
+                "The previous snapshot must not be modified");
+    }
+
+    @Test
+    void givenInvalidConfigurationShouldKeepPreviousSnapshot() throws InterruptedException, IOException {
+
+        PricingSnapshot previous = pricingContext.getPricingSnapshot();
+
+        File watchedFile = YamlUtils.resolveConfigPath(WATCHED_CONFIG_PATH).toFile();
+        try (FileWriter writer = new FileWriter(watchedFile)) {
+            writer.write("saasName: petclinic\nfeatures: 3\n");
+        }
+
+        assertNotNull(awaitReload(RuntimeException.class));
+        assertSame(previous, pricingContext.getPricingSnapshot(), "An invalid configuration must not be published");
+    }
+
+    private <T> T awaitReload(Class<T> outcome) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        // Editors and writers may trigger more than one reload per change
+        while (true) {
+            Object reload = reloads.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+
+            if (reload == null) {
+                return fail("The configuration was not reloaded within " + TIMEOUT_MILLIS + " ms");
+            }
+
+            if (outcome.isInstance(reload)) {
+                return outcome.cast(reload);
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package io.github.isagroup;
 
 import java.util.Map;
 
+import io.github.isagroup.services.jwt.TokenFormat;
+
 public class PricingContextTestImpl extends PricingContext {
 
     private String path;
@@ -16,6 +18,8 @@ public class PricingContextTestImpl extends PricingContext {
 
     private Map<String, Object> userAuthorities;
 
+    private TokenFormat tokenFormat = TokenFormat.FULL;
+
     @Override
     public String getConfigFilePath() {
         return path;
@@ -65,4 +69,13 @@ public class PricingContextTestImpl extends PricingContext {
         this.userAuthorities = userAuthorities;
     }
 
+    @Override
+    public TokenFormat getTokenFormat() {
+        return tokenFormat;
+    }
+
+    public void setTokenFormat(TokenFormat tokenFormat) {
+        this.tokenFormat = tokenFormat;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package io.github.isagroup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import io.github.isagroup.annotations.PricingPlanAware;
+import io.github.isagroup.annotations.PricingPlanAwareScanner;
+import io.github.isagroup.annotations.TransactionPolicy;
+import io.github.isagroup.exceptions.FilepathException;
+import io.github.isagroup.exceptions.PricingPlanEvaluationException;
+import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.evaluation.EvaluationMode;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+
+public class PricingContextTests {
+
+    private static final String PETCLINIC_CONFIG_PATH = "yaml-testing/petclinic.yml";
+    private static final String TERMINATOR_CONFIG_PATH = "pricing/terminator.yml";
+
+    private PricingContextTestImpl pricingContext;
+
+    @BeforeEach
+    public void setUp() {
+
+        Map<String, Object> userContext = new HashMap<>();
+        userContext.put("username", "admin1");
+        userContext.put("pets", 2);
+
+        PricingContextTestImpl pricingContext = new PricingContextTestImpl();
+        pricingContext.setConfigFilePath(PETCLINIC_CONFIG_PATH);
+        pricingContext.setJwtSecret("secret");
+        pricingContext.setJwtExpiration(86400);
+        pricingContext.setUserContext(userContext);
+        pricingContext.setUserPlan("ADVANCED");
+
+        this.pricingContext = pricingContext;
+    }
+
+    @Test
+    void givenSeveralReadsShouldParseConfigurationOnce() {
+
+        PricingSnapshot snapshot = pricingContext.getPricingSnapshot();
+
+        assertSame(snapshot, pricingContext.getPricingSnapshot(), "The snapshot should be cached");
+        assertEquals(snapshot.getPricingManager(), pricingContext.getPricingManager(),
+                "The pricing manager should come from the cached snapshot");
+    }
+
+    @Test
+    void givenChangesToReturnedConfigurationShouldNotChangeSnapshot() {
+
+        PricingSnapshot snapshot = pricingContext.getPricingSnapshot();
+        PricingManager pricingManager = pricingContext.getPricingManager();
+        Object maxPets = pricingManager.getPlans().get("BASIC").getUsageLimits().get("maxPets").getValue();
+
+        pricingManager.getPlans().get("BASIC").getUsageLimits().get("maxPets").setValue(1000);
+        pricingManager.getFeatures().get("haveCalendar").setExpression("true");
+        pricingManager.getPlans().remove("ADVANCED");
+
+        PricingManager current = snapshot.getPricingManager();
+
+        assertNotSame(pricingManager, current);
+        assertEquals(maxPets, current.getPlans().get("BASIC").getUsageLimits().get("maxPets").getValue(),
+                "Plan values of the snapshot should not change");
+        assertNotEquals("true", current.getFeatures().get("haveCalendar").getExpression(),
+                "Features of the snapshot should not change");
+        assertTrue(current.getPlans().containsKey("ADVANCED"), "Plans of the snapshot should not change");
+    }
+
+    @Test
+    void givenReloadShouldPublishNewerSnapshot() {
+
+        PricingSnapshot previous = pricingContext.getPricingSnapshot();
+        PricingSnapshot reloaded = pricingContext.reloadPricingManager();
+
+        assertNotSame(previous, reloaded);
+        assertTrue(reloaded.getVersion() > previous.getVersion(), "Reloaded snapshot should have a higher version");
+        assertSame(reloaded, pricingContext.getPricingSnapshot());
+    }
+
+    @Test
+    void givenInvalidationShouldParseConfigurationAgain() {
+
+        PricingSnapshot previous = pricingContext.getPricingSnapshot();
+        pricingContext.invalidatePricingManager();
+
+        PricingSnapshot current = pricingContext.getPricingSnapshot();
+
+        assertNotSame(previous, current);
+        assertEquals(previous.getPricingManager(), current.getPricingManager());
+    }
+
+    @Test
+    void givenInvalidationWhileParsingShouldNotPublishOutdatedSnapshot() {
+
+        AtomicInteger loads = new AtomicInteger();
+
+        PricingContextTestImpl pricingContext = new PricingContextTestImpl() {
+
+            @Override
+            public EvaluationMode getEvaluationMode() {
+                // The configuration is written while the first load parses it
+                if (loads.incrementAndGet() == 1) {
+                    invalidatePricingManager();
+                }
+                return EvaluationMode.INTERPRETED;
+            }
+        };
+        pricingContext.setConfigFilePath(PETCLINIC_CONFIG_PATH);
+
+        PricingSnapshot snapshot = pricingContext.getPricingSnapshot();
+
+        assertEquals(2, loads.get(), "The configuration should be parsed again after the invalidation");
+        assertSame(snapshot, pricingContext.getPricingSnapshot());
+    }
+
+    @Test
+    void givenInvalidationOfBrokenConfigurationShouldKeepLastSnapshot() {
+
+        AtomicBoolean broken = new AtomicBoolean();
+        AtomicInteger loads = new AtomicInteger();
+
+        PricingContextTestImpl pricingContext = new PricingContextTestImpl() {
+
+            @Override
+            public EvaluationMode getEvaluationMode() {
+                loads.incrementAndGet();
+                if (broken.get()) {
+                    throw new YAMLException("Broken configuration");
+                }
+                return EvaluationMode.INTERPRETED;
+            }
+        };
+        pricingContext.setConfigFilePath(PETCLINIC_CONFIG_PATH);
+
+        PricingSnapshot previous = pricingContext.getPricingSnapshot();
+
+        broken.set(true);
+        pricingContext.invalidatePricingManager();
+
+        assertSame(previous, pricingContext.getPricingSnapshot(), "The last snapshot should stay in use");
+        assertSame(previous, pricingContext.getPricingSnapshot());
+        assertEquals(2, loads.get(), "The broken configuration should only be parsed once");
+
+        pricingContext.setConfigFilePath(TERMINATOR_CONFIG_PATH);
+
+        assertThrows(PricingPlanEvaluationException.class, () -> pricingContext.getPricingSnapshot(),
+                "A snapshot of another file should not be used");
+    }
+
+    @Test
+    void givenNewConfigFilePathShouldLoadNewSnapshot() {
+
+        pricingContext.getPricingSnapshot();
+        pricingContext.setConfigFilePath(TERMINATOR_CONFIG_PATH);
+
+        PricingSnapshot snapshot = pricingContext.getPricingSnapshot();
+
+        assertTrue(snapshot.isLoadedFrom(TERMINATOR_CONFIG_PATH));
+        assertEquals("Terminator pricing", snapshot.getPricingManager().getSaasName());
+    }
+
+    @Test
+    void givenNonExistentConfigFileShouldThrow() {
+
+        pricingContext.setConfigFilePath("nonExistentFile.yml");
+
+        assertThrows(FilepathException.class, () -> pricingContext.getPricingSnapshot());
+    }
+
+    @Test
+    void givenSeveralReadsShouldSharePlanContext() {
+
+        Map<String, Object> planContext = pricingContext.getPlanContext();
+
+        assertSame(planContext, pricingContext.getPlanContext(), "The plan context should be built once");
+        assertThrows(UnsupportedOperationException.class, () -> planContext.put("name", "OTHER"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> ((Map<String, Object>) planContext.get("usageLimits")).put("maxPets", 0));
+    }
+
+    @Test
+    void givenUnknownRequiredFeatureShouldThrow() {
+
+        PricingPlanEvaluationException exception = assertThrows(PricingPlanEvaluationException.class,
+                () -> pricingContext.requireFeatures(Arrays.asList("maxPets", "notDefined")));
+
+        assertEquals("The features [notDefined] do not exist in the current pricing configuration",
+                exception.getMessage());
+    }
+
+    @Test
+    void givenReloadWithoutRequiredFeatureShouldKeepPreviousSnapshot() {
+
+        pricingContext.requireFeatures(Arrays.asList("maxPets"));
+        PricingSnapshot previous = pricingContext.getPricingSnapshot();
+
+        pricingContext.setConfigFilePath(TERMINATOR_CONFIG_PATH);
+
+        assertThrows(PricingPlanEvaluationException.class, () -> pricingContext.reloadPricingManager());
+
+        pricingContext.setConfigFilePath(PETCLINIC_CONFIG_PATH);
+
+        assertSame(previous, pricingContext.getPricingSnapshot());
+    }
+
+    @Test
+    void givenDefaultPolicyShouldNotHandleTransactions() {
+        assertEquals(TransactionPolicy.NONE, pricingContext.getTransactionPolicy());
+    }
+
+    @Test
+    void givenAnnotatedMethodsShouldFindTheirFeatureNames() {
+
+        assertEquals(new TreeSet<>(Arrays.asList("haveCalendar", "maxPets")),
+                PricingPlanAwareScanner.findFeatureNames(AnnotatedService.class));
+    }
+
+    static class AnnotatedService {
+
+        @PricingPlanAware(featureName = "maxPets")
+        public void addPet() {
+        }
+
+        @PricingPlanAware(featureName = "haveCalendar", evaluateBeforeProceed = true)
+        public void showCalendar() {
+        }
+
+        public void listPets() {
+        }
+    }
+}
@@ -2,15 +2,31 @@ package io.github.isagroup;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import io.github.isagroup.exceptions.MalformedTokenException;
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.services.jwt.CompactFeatureCodec;
+import io.github.isagroup.services.jwt.FeatureStatusDelta;
+import io.github.isagroup.services.jwt.FeatureStatusFingerprint;
 import io.github.isagroup.services.jwt.PricingJwtUtils;
+import io.github.isagroup.services.jwt.PricingToken;
+import io.github.isagroup.services.jwt.TokenFormat;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
 
 public class PricingEvaluatorUtilTests {
 
@@ -135,4 +151,239 @@ public class PricingEvaluatorUtilTests {
                                 "UserContext havePetsDashboard value is not the same after token codification");
 
         }
+
+        @Test
+        void updateFeatureStatusesShouldOnlyReevaluateAffectedFeatures() {
+
+                Map<String, FeatureStatus> featureStatuses = pricingEvaluatorUtil.computeFeatureStatuses();
+
+                assertTrue(featureStatuses.get("maxPets").getEval(), "maxPets evaluation should be true");
+
+                Map<String, Object> userContext = new HashMap<>(pricingContext.getUserContext());
+                userContext.put("pets", 12);
+                ((PricingContextTestImpl) pricingContext).setUserContext(userContext);
+
+                Map<String, FeatureStatus> updatedFeatureStatuses = pricingEvaluatorUtil
+                                .updateFeatureStatuses(featureStatuses, Collections.singleton("pets"));
+
+                assertFalse(updatedFeatureStatuses.get("maxPets").getEval(),
+                                "maxPets evaluation should be false after adding pets");
+                assertEquals(12, updatedFeatureStatuses.get("maxPets").getUsed(),
+                                "maxPets used value should be updated");
+                assertSame(featureStatuses.get("haveCalendar"), updatedFeatureStatuses.get("haveCalendar"),
+                                "haveCalendar does not depend on pets and should not be evaluated again");
+                assertEquals(featureStatuses.keySet(), updatedFeatureStatuses.keySet(),
+                                "Every feature should have a status");
+
+        }
+
+        @Test
+        void parsedTokenShouldBeReusedWhileValid() {
+
+                String token = pricingEvaluatorUtil.generateUserToken();
+
+                PricingToken pricingToken = jwtUtils.parseToken(token);
+
+                assertSame(pricingToken, jwtUtils.parseToken(token), "Verified token should be cached");
+                assertEquals(JWT_SUBJECT_TEST, pricingToken.getSubject(), "Subject is not the expected one");
+                assertTrue((Boolean) pricingToken.getFeatures().get("haveCalendar").get("eval"),
+                                "haveCalendar evaluation should be true");
+                assertThrows(UnsupportedOperationException.class,
+                                () -> pricingToken.getFeatures().get("haveCalendar").put("eval", false),
+                                "Claims of a parsed token should be read-only");
+
+        }
+
+        @Test
+        void tokenShouldCarryFingerprintOfItsFeatures() {
+
+                String token = pricingEvaluatorUtil.generateUserToken();
+                Object tokenFingerprint = jwtUtils.parseToken(token).getClaim(FeatureStatusFingerprint.CLAIM);
+
+                Map<String, FeatureStatus> featureStatuses = pricingEvaluatorUtil.computeFeatureStatuses();
+
+                assertEquals(FeatureStatusFingerprint.of(featureStatuses), tokenFingerprint,
+                                "Fingerprint should not change while features do not change");
+
+                Map<String, Object> userContext = new HashMap<>(pricingContext.getUserContext());
+                userContext.put("pets", 12);
+                ((PricingContextTestImpl) pricingContext).setUserContext(userContext);
+
+                assertNotEquals(tokenFingerprint,
+                                FeatureStatusFingerprint.of(pricingEvaluatorUtil.computeFeatureStatuses()),
+                                "Fingerprint should change when the features change");
+
+        }
+
+        @Test
+        void compactTokenShouldDecodeToTheEvaluatedFeatures() {
+
+                ((PricingContextTestImpl) pricingContext).setTokenFormat(TokenFormat.COMPACT);
+
+                String token = pricingEvaluatorUtil.generateUserToken();
+
+                assertNull(jwtUtils.getFeaturesFromJwtToken(token), "Compact token should not carry the features map");
+                assertNull(jwtUtils.getPlanContextFromJwtToken(token), "Compact token should not carry the plan context");
+
+                Map<String, FeatureStatus> expected = pricingEvaluatorUtil.computeFeatureStatuses();
+                Map<String, FeatureStatus> decoded = jwtUtils.getFeatureStatusesFromCompactToken(token);
+
+                assertEquals(expected.keySet(), decoded.keySet(), "Every feature should be decoded");
+
+                for (String featureName : expected.keySet()) {
+                        assertEquals(expected.get(featureName).getEval(), decoded.get(featureName).getEval(),
+                                        "Evaluation of " + featureName + " is not the same after decoding");
+                        assertEquals(expected.get(featureName).getUsed(), decoded.get(featureName).getUsed(),
+                                        "Used value of " + featureName + " is not the same after decoding");
+                        assertEquals(expected.get(featureName).getLimit(), decoded.get(featureName).getLimit(),
+                                        "Limit of " + featureName + " is not the same after decoding");
+                }
+
+        }
+
+        @Test
+        void compactFeaturesShouldKeepMissingEvaluations() {
+
+                String featureName = pricingContext.getPricingSnapshot().getFrozenPricing().getFeatureNames().get(0);
+
+                FeatureStatus featureStatus = new FeatureStatus();
+                featureStatus.setUsed(1);
+
+                String encoded = CompactFeatureCodec.encode(Collections.singletonMap(featureName, featureStatus),
+                                pricingContext.getPricingSnapshot());
+                FeatureStatus decoded = CompactFeatureCodec.decode(encoded, pricingContext.getPricingSnapshot())
+                                .get(featureName);
+
+                assertNull(decoded.getEval(), "A missing evaluation should not be decoded as false");
+                assertEquals(1, decoded.getUsed(), "Used value is not the same after decoding");
+
+        }
+
+        @Test
+        void tamperedCompactFeaturesShouldBeRejected() {
+
+                String featureName = pricingContext.getPricingSnapshot().getFrozenPricing().getFeatureNames().get(0);
+
+                FeatureStatus featureStatus = new FeatureStatus();
+                featureStatus.setEval(true);
+                featureStatus.setUsed("text");
+
+                byte[] payload = Base64.getUrlDecoder().decode(CompactFeatureCodec.encode(
+                                Collections.singletonMap(featureName, featureStatus), pricingContext.getPricingSnapshot()));
+
+                // Replaces the length of the text, 4, by 2^31 encoded as a varint
+                int length = payload.length - 6;
+                assertEquals(4, payload[length], "Unexpected layout of the encoded text");
+
+                byte[] tampered = new byte[payload.length + 4];
+                System.arraycopy(payload, 0, tampered, 0, length);
+                System.arraycopy(new byte[] { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08 }, 0, tampered,
+                                length, 5);
+                System.arraycopy(payload, length + 1, tampered, length + 5, payload.length - length - 1);
+
+                String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(tampered);
+
+                assertThrows(MalformedTokenException.class,
+                                () -> CompactFeatureCodec.decode(encoded, pricingContext.getPricingSnapshot()));
+                assertThrows(MalformedTokenException.class,
+                                () -> CompactFeatureCodec.decode(encoded.substring(0, 12),
+                                                pricingContext.getPricingSnapshot()));
+
+        }
+
+        @Test
+        void deltaTokenShouldOnlyCarryChangedFeatures() {
+
+                String baseToken = pricingEvaluatorUtil.generateUserToken();
+
+                Map<String, Object> userContext = new HashMap<>(pricingContext.getUserContext());
+                userContext.put("pets", 12);
+                ((PricingContextTestImpl) pricingContext).setUserContext(userContext);
+
+                Map<String, FeatureStatus> featureStatuses = pricingEvaluatorUtil.computeFeatureStatuses();
+                String deltaToken = pricingEvaluatorUtil.generateUserDeltaToken(featureStatuses, baseToken);
+
+                PricingToken pricingToken = jwtUtils.parseToken(deltaToken);
+
+                assertNull(pricingToken.getFeatures(), "Delta token should not carry every feature");
+                Map<String, Object> delta = (Map<String, Object>) pricingToken.getClaim(FeatureStatusDelta.CLAIM);
+                assertTrue(delta.containsKey("maxPets"), "Delta token should carry the changed feature");
+                assertTrue(delta.size() < featureStatuses.size(), "Delta token should not carry unchanged features");
+
+                Map<String, FeatureStatus> merged = jwtUtils.mergeDeltaToken(baseToken, deltaToken);
+
+                assertEquals(FeatureStatusFingerprint.of(featureStatuses), FeatureStatusFingerprint.of(merged),
+                                "Merged statuses should be the current ones");
+
+                userContext.put("pets", 1);
+                featureStatuses = pricingEvaluatorUtil.computeFeatureStatuses();
+                String nextDeltaToken = pricingEvaluatorUtil.generateUserDeltaToken(featureStatuses, deltaToken);
+
+                assertEquals(FeatureStatusFingerprint.of(featureStatuses),
+                                FeatureStatusFingerprint.of(jwtUtils.mergeDeltaToken(merged, nextDeltaToken)),
+                                "A delta token should be usable as the base of the next one");
+
+                assertNull(jwtUtils.mergeDeltaToken(baseToken, nextDeltaToken),
+                                "A delta token should not be merged with other statuses");
+
+        }
+
+        @Test
+        void featureStatusesShouldBeSharedByUsersWithSameRelevantContext() {
+
+                Map<String, FeatureStatus> featureStatuses = pricingEvaluatorUtil.computeFeatureStatuses();
+
+                Map<String, Object> userContext = new HashMap<>(pricingContext.getUserContext());
+                userContext.put("username", "anotherUser");
+                ((PricingContextTestImpl) pricingContext).setUserContext(userContext);
+
+                Map<String, FeatureStatus> otherFeatureStatuses = pricingEvaluatorUtil.computeFeatureStatuses();
+
+                assertEquals(FeatureStatusFingerprint.of(featureStatuses), FeatureStatusFingerprint.of(otherFeatureStatuses),
+                                "Keys not read by the expressions should not change the cached statuses");
+
+                otherFeatureStatuses.get("maxPets").setEval(false);
+
+                assertTrue(featureStatuses.get("maxPets").getEval(),
+                                "Changing the statuses of a user should not change the ones of another user");
+                assertTrue(pricingEvaluatorUtil.computeFeatureStatuses().get("maxPets").getEval(),
+                                "Changing the returned statuses should not change the cached ones");
+
+                userContext.put("pets", 12);
+
+                Map<String, FeatureStatus> updatedFeatureStatuses = pricingEvaluatorUtil.computeFeatureStatuses();
+
+                assertNotSame(featureStatuses, updatedFeatureStatuses,
+                                "Keys read by the expressions should change the cached statuses");
+                assertFalse(updatedFeatureStatuses.get("maxPets").getEval(), "maxPets evaluation should be false");
+
+        }
+
+        @Test
+        void tokensShouldBeCompatibleWithPlainSecretSigning() {
+
+                String token = pricingEvaluatorUtil.generateUserToken();
+
+                assertEquals(JWT_SUBJECT_TEST,
+                                Jwts.parser().setSigningKey(JWT_SECRET_TEST).parseClaimsJws(token).getBody().getSubject(),
+                                "Token should be verifiable with the secret");
+
+                String plainToken = Jwts.builder().setSubject(JWT_SUBJECT_TEST)
+                                .signWith(SignatureAlgorithm.HS512, JWT_SECRET_TEST).compact();
+
+                assertTrue(jwtUtils.validateJwtToken(plainToken), "Token signed with the secret should be valid");
+
+                String hs256Token = Jwts.builder().setSubject(JWT_SUBJECT_TEST)
+                                .signWith(SignatureAlgorithm.HS256, JWT_SECRET_TEST).compact();
+
+                assertTrue(jwtUtils.validateJwtToken(hs256Token), "Token signed with HS256 should be valid");
+                assertEquals(Jwts.parser().setSigningKey(JWT_SECRET_TEST).parseClaimsJws(token).getBody().getExpiration(),
+                                jwtUtils.parseToken(token).getExpiration(), "Expiration should be read as jjwt does");
+
+                String otherToken = Jwts.builder().setSubject(JWT_SUBJECT_TEST)
+                                .signWith(SignatureAlgorithm.HS512, "b3RoZXJTZWNyZXQ=").compact();
+
+                assertFalse(jwtUtils.validateJwtToken(otherToken), "Token signed with another secret should not be valid");
+
+        }
 }
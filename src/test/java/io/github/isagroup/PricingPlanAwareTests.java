@@ -2,29 +2,50 @@ package io.github.isagroup;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import io.github.isagroup.PricingPlanAwareTests.TestConfiguration.PricingContextImpl;
 import io.github.isagroup.annotations.PricingPlanAware;
 import io.github.isagroup.annotations.PricingPlanAwareAspect;
+import io.github.isagroup.annotations.RequestEvaluationContext;
+import io.github.isagroup.annotations.TransactionPolicy;
 import io.github.isagroup.exceptions.FilepathException;
 import io.github.isagroup.exceptions.PricingPlanEvaluationException;
 import io.github.isagroup.services.jwt.PricingJwtUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -47,6 +68,9 @@ public class PricingPlanAwareTests {
             private String jwtSecret = JWT_SECRET_TEST;
             private int jwtExpiration = JWT_EXPIRATION_TEST;
             private int numberOfPets = 10;
+            private int userContextCalls = 0;
+            private Object userKey;
+            private TransactionPolicy transactionPolicy = TransactionPolicy.REQUIRED;
 
             @Override
             public String getConfigFilePath() {
@@ -79,8 +103,32 @@ public class PricingPlanAwareTests {
                 this.numberOfPets = numberOfPets;
             }
 
+            public void setTransactionPolicy(TransactionPolicy transactionPolicy) {
+                this.transactionPolicy = transactionPolicy;
+            }
+
+            @Override
+            public TransactionPolicy getTransactionPolicy() {
+                return this.transactionPolicy;
+            }
+
+            public void setUserKey(Object userKey) {
+                this.userKey = userKey;
+            }
+
+            @Override
+            public Object getUserKey() {
+                return this.userKey;
+            }
+
+            public int getUserContextCalls() {
+                return this.userContextCalls;
+            }
+
             @Override
             public Map<String, Object> getUserContext() {
+                this.userContextCalls++;
+
                 Map<String, Object> userContext = new HashMap<>();
 
                 userContext.put("username", JWT_SUBJECT_TEST);
@@ -117,15 +165,8 @@ public class PricingPlanAwareTests {
     @Mock
     private ProceedingJoinPoint joinPoint;
 
-    @Test
-    void simpleAnnotationUseCaseTest() throws Throwable {
-
-        Mockito.when(joinPoint.proceed()).thenReturn("Result");
-
-        // Obtener el valor del parámetro featureId que deseas probar
-        String featureId = "maxPets";
-
-        pricingPlanAwareAspect.validatePricingPlan(joinPoint, new PricingPlanAware() {
+    private static PricingPlanAware pricingPlanAware(String featureId, boolean evaluateBeforeProceed) {
+        return new PricingPlanAware() {
             @Override
             public Class<? extends java.lang.annotation.Annotation> annotationType() {
                 return PricingPlanAware.class;
@@ -135,7 +176,23 @@ public class PricingPlanAwareTests {
             public String featureName() {
                 return featureId;
             }
-        });
+
+            @Override
+            public boolean evaluateBeforeProceed() {
+                return evaluateBeforeProceed;
+            }
+        };
+    }
+
+    @Test
+    void simpleAnnotationUseCaseTest() throws Throwable {
+
+        Mockito.when(joinPoint.proceed()).thenReturn("Result");
+
+        // Obtener el valor del parámetro featureId que deseas probar
+        String featureId = "maxPets";
+
+        pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, false));
     }
 
     @Test
@@ -149,24 +206,347 @@ public class PricingPlanAwareTests {
         String featureId = "maxPets";
 
         PricingPlanEvaluationException exception = assertThrows(PricingPlanEvaluationException.class, () -> {
-            pricingPlanAwareAspect.validatePricingPlan(joinPoint, new PricingPlanAware() {
-                @Override
-                public Class<? extends java.lang.annotation.Annotation> annotationType() {
-                    return PricingPlanAware.class;
-                }
-
-                @Override
-                public String featureName() {
-                    return featureId;
-                }
-            });
+            pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, false));
+        });
+
+        assertEquals("You have reached the limit of the feature: " + featureId, exception.getMessage());
+
+        pricingContextImpl.setNumberOfPets(2);
+    }
+
+    @Test
+    void evaluationBeforeProceedShouldNotInvokeDeniedMethodTest() throws Throwable {
+
+        pricingContextImpl.setNumberOfPets(16);
+
+        Mockito.when(joinPoint.proceed()).thenReturn("Result");
+
+        String featureId = "maxPets";
+
+        PricingPlanEvaluationException exception = assertThrows(PricingPlanEvaluationException.class, () -> {
+            pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, true));
         });
 
         assertEquals("You have reached the limit of the feature: " + featureId, exception.getMessage());
+        Mockito.verify(joinPoint, Mockito.never()).proceed();
 
         pricingContextImpl.setNumberOfPets(2);
     }
 
+    @Test
+    void evaluationBeforeProceedShouldInvokeAllowedMethodTest() throws Throwable {
+
+        Mockito.when(joinPoint.proceed()).thenReturn("Result");
+
+        String featureId = "maxPets";
+
+        Object result = pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, true));
+
+        assertEquals("Result", result);
+        Mockito.verify(joinPoint, Mockito.times(1)).proceed();
+    }
+
+    @Test
+    void evaluationsOfTheSameRequestShouldShareTheUserContextTest() throws Throwable {
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        try {
+            String featureId = "maxPets";
+            int userContextCalls = pricingContextImpl.getUserContextCalls();
+
+            // A method that calls another one of the same feature
+            ProceedingJoinPoint innerJoinPoint = Mockito.mock(ProceedingJoinPoint.class);
+            Mockito.when(innerJoinPoint.proceed()).thenReturn("Result");
+            Mockito.when(joinPoint.proceed()).thenAnswer(invocation -> pricingPlanAwareAspect
+                    .validatePricingPlan(innerJoinPoint, pricingPlanAware(featureId, true)));
+
+            pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, true));
+
+            assertEquals(userContextCalls + 1, pricingContextImpl.getUserContextCalls());
+
+            // Invoked methods may have consumed usage, so the context is read
+            // again, and then shared by checks that do not invoke a method
+            assertThrows(PricingPlanEvaluationException.class, () -> {
+                pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware("haveCalendar", true));
+            });
+            assertThrows(PricingPlanEvaluationException.class, () -> {
+                pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware("haveCalendar", true));
+            });
+
+            assertEquals(userContextCalls + 2, pricingContextImpl.getUserContextCalls());
+
+            pricingContextImpl.setNumberOfPets(16);
+            RequestEvaluationContext.invalidateUserContext();
+
+            assertThrows(PricingPlanEvaluationException.class, () -> {
+                pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, true));
+            });
+            assertEquals(userContextCalls + 3, pricingContextImpl.getUserContextCalls());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            pricingContextImpl.setNumberOfPets(2);
+        }
+    }
+
+    @Test
+    void evaluationBeforeProceedShouldSeeUsageOfPreviousCallsOfTheRequestTest() throws Throwable {
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        pricingContextImpl.setNumberOfPets(10);
+
+        try {
+            // The first call adds the last pet allowed by the plan
+            Mockito.when(joinPoint.proceed()).thenAnswer(invocation -> {
+                pricingContextImpl.setNumberOfPets(11);
+                return "Result";
+            });
+
+            assertEquals("Result", pricingPlanAwareAspect.validatePricingPlan(joinPoint,
+                    pricingPlanAware("maxPets", true)));
+            assertThrows(PricingPlanEvaluationException.class, () -> {
+                pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware("maxPets", true));
+            });
+
+            Mockito.verify(joinPoint, Mockito.times(1)).proceed();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            pricingContextImpl.setNumberOfPets(2);
+        }
+    }
+
+    @Test
+    void requiredTransactionShouldRollBackDeniedMethodTest() throws Throwable {
+
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(Mockito.any())).thenReturn(new SimpleTransactionStatus());
+
+        PricingPlanAwareAspect aspect = new PricingPlanAwareAspect();
+        ReflectionTestUtils.setField(aspect, "pricingContext", pricingContextImpl);
+        ReflectionTestUtils.setField(aspect, "transactionManager", transactionManager);
+
+        pricingContextImpl.setTransactionPolicy(TransactionPolicy.REQUIRED);
+        pricingContextImpl.setNumberOfPets(16);
+
+        try {
+            Mockito.when(joinPoint.proceed()).thenReturn("Result");
+
+            assertThrows(PricingPlanEvaluationException.class, () -> {
+                aspect.validatePricingPlan(joinPoint, pricingPlanAware("maxPets", false));
+            });
+
+            Mockito.verify(transactionManager).rollback(Mockito.any());
+            Mockito.verify(transactionManager, Mockito.never()).commit(Mockito.any());
+        } finally {
+            pricingContextImpl.setTransactionPolicy(TransactionPolicy.REQUIRED);
+            pricingContextImpl.setNumberOfPets(2);
+        }
+    }
+
+    @Test
+    void joinIfPresentPolicyShouldOnlySupportTransactionsTest() throws Throwable {
+
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(Mockito.any())).thenReturn(new SimpleTransactionStatus(false));
+
+        PricingPlanAwareAspect aspect = new PricingPlanAwareAspect();
+        ReflectionTestUtils.setField(aspect, "pricingContext", pricingContextImpl);
+        ReflectionTestUtils.setField(aspect, "transactionManager", transactionManager);
+
+        pricingContextImpl.setTransactionPolicy(TransactionPolicy.JOIN_IF_PRESENT);
+
+        try {
+            Mockito.when(joinPoint.proceed()).thenReturn("Result");
+
+            aspect.validatePricingPlan(joinPoint, pricingPlanAware("maxPets", false));
+            aspect.validatePricingPlan(joinPoint, pricingPlanAware("maxPets", false));
+
+            ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+            Mockito.verify(transactionManager, Mockito.times(2)).getTransaction(definitions.capture());
+
+            assertEquals(TransactionDefinition.PROPAGATION_SUPPORTS, definitions.getValue().getPropagationBehavior());
+            assertSame(definitions.getAllValues().get(0), definitions.getAllValues().get(1),
+                    "The transaction template should be built once");
+        } finally {
+            pricingContextImpl.setTransactionPolicy(TransactionPolicy.REQUIRED);
+        }
+    }
+
+    @Test
+    void noTransactionPolicyShouldNotUseTransactionManagerTest() throws Throwable {
+
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+
+        PricingPlanAwareAspect aspect = new PricingPlanAwareAspect();
+        ReflectionTestUtils.setField(aspect, "pricingContext", pricingContextImpl);
+        ReflectionTestUtils.setField(aspect, "transactionManager", transactionManager);
+
+        pricingContextImpl.setTransactionPolicy(TransactionPolicy.NONE);
+
+        try {
+            Mockito.when(joinPoint.proceed()).thenReturn("Result");
+
+            assertEquals("Result", aspect.validatePricingPlan(joinPoint, pricingPlanAware("maxPets", false)));
+
+            Mockito.verifyNoInteractions(transactionManager);
+        } finally {
+            pricingContextImpl.setTransactionPolicy(TransactionPolicy.REQUIRED);
+        }
+    }
+
+    @Test
+    void asyncMethodShouldBeCheckedOnceItCompletesTest() throws Throwable {
+
+        pricingContextImpl.setNumberOfPets(16);
+
+        try {
+            mockReturnType(CompletableFuture.class);
+            CompletableFuture<Object> work = new CompletableFuture<>();
+            Mockito.when(joinPoint.proceed()).thenReturn(work);
+
+            CompletableFuture<?> result = (CompletableFuture<?>) pricingPlanAwareAspect.validatePricingPlan(joinPoint,
+                    pricingPlanAware("maxPets", false));
+
+            assertFalse(result.isDone());
+
+            work.complete("Result");
+
+            ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(PricingPlanEvaluationException.class, exception.getCause());
+        } finally {
+            pricingContextImpl.setNumberOfPets(2);
+        }
+    }
+
+    @Test
+    void asyncMethodWithoutUserKeyShouldBeCheckedWithTheUsageReadBeforeItRunsTest() throws Throwable {
+
+        mockReturnType(CompletableFuture.class);
+        CompletableFuture<Object> work = new CompletableFuture<>();
+        Mockito.when(joinPoint.proceed()).thenReturn(work);
+
+        int userContextCalls = pricingContextImpl.getUserContextCalls();
+
+        try {
+            CompletableFuture<?> result = (CompletableFuture<?>) pricingPlanAwareAspect
+                    .validatePricingPlan(joinPoint, pricingPlanAware("maxPets", false));
+
+            assertEquals(userContextCalls + 1, pricingContextImpl.getUserContextCalls());
+
+            // Usage consumed by the method is not seen by the check
+            pricingContextImpl.setNumberOfPets(16);
+            CompletableFuture.runAsync(() -> work.complete("Result")).get();
+
+            assertEquals("Result", result.get());
+            assertEquals(userContextCalls + 1, pricingContextImpl.getUserContextCalls());
+        } finally {
+            pricingContextImpl.setNumberOfPets(2);
+        }
+    }
+
+    @Test
+    void asyncMethodWithUserKeyShouldBeCheckedWithTheUsageReadAfterItRunsTest() throws Throwable {
+
+        mockReturnType(CompletableFuture.class);
+        CompletableFuture<Object> work = new CompletableFuture<>();
+        Mockito.when(joinPoint.proceed()).thenReturn(work);
+
+        int userContextCalls = pricingContextImpl.getUserContextCalls();
+        pricingContextImpl.setUserKey(JWT_SUBJECT_TEST);
+
+        try {
+            CompletableFuture<?> result = (CompletableFuture<?>) pricingPlanAwareAspect
+                    .validatePricingPlan(joinPoint, pricingPlanAware("maxPets", false));
+
+            assertEquals(userContextCalls, pricingContextImpl.getUserContextCalls());
+
+            pricingContextImpl.setNumberOfPets(16);
+            CompletableFuture.runAsync(() -> work.complete("Result")).get();
+
+            ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(PricingPlanEvaluationException.class, exception.getCause());
+            assertEquals(userContextCalls + 1, pricingContextImpl.getUserContextCalls());
+        } finally {
+            pricingContextImpl.setUserKey(null);
+            pricingContextImpl.setNumberOfPets(2);
+        }
+    }
+
+    @Test
+    void asyncMethodShouldNotBeInvokedWhenDeniedBeforeProceedTest() throws Throwable {
+
+        pricingContextImpl.setNumberOfPets(16);
+
+        try {
+            mockReturnType(CompletableFuture.class);
+            Mockito.when(joinPoint.proceed()).thenReturn(CompletableFuture.completedFuture("Result"));
+
+            CompletableFuture<?> result = (CompletableFuture<?>) pricingPlanAwareAspect.validatePricingPlan(joinPoint,
+                    pricingPlanAware("maxPets", true));
+
+            ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(PricingPlanEvaluationException.class, exception.getCause());
+            Mockito.verify(joinPoint, Mockito.never()).proceed();
+        } finally {
+            pricingContextImpl.setNumberOfPets(2);
+        }
+    }
+
+    @Test
+    void reactiveMethodShouldBeCheckedOnSubscriptionTest() throws Throwable {
+
+        mockReturnType(Mono.class);
+        Mockito.when(joinPoint.proceed()).thenReturn(Mono.just("Result"));
+
+        Mono<?> allowed = (Mono<?>) pricingPlanAwareAspect.validatePricingPlan(joinPoint,
+                pricingPlanAware("maxPets", true));
+
+        Mockito.verify(joinPoint, Mockito.never()).proceed();
+        assertEquals("Result", allowed.block());
+
+        pricingContextImpl.setNumberOfPets(16);
+
+        try {
+            Mono<?> denied = (Mono<?>) pricingPlanAwareAspect.validatePricingPlan(joinPoint,
+                    pricingPlanAware("maxPets", false));
+
+            assertThrows(PricingPlanEvaluationException.class, denied::block);
+        } finally {
+            pricingContextImpl.setNumberOfPets(2);
+        }
+    }
+
+    @Test
+    void deniedFluxShouldNotEmitElementsTest() throws Throwable {
+
+        mockReturnType(Flux.class);
+        Mockito.when(joinPoint.proceed()).thenReturn(Flux.just("First", "Second"));
+
+        pricingContextImpl.setNumberOfPets(16);
+
+        try {
+            List<Object> emitted = new ArrayList<>();
+            Flux<?> denied = (Flux<?>) pricingPlanAwareAspect.validatePricingPlan(joinPoint,
+                    pricingPlanAware("maxPets", false));
+
+            assertThrows(PricingPlanEvaluationException.class, () -> denied.doOnNext(emitted::add).blockLast());
+            assertTrue(emitted.isEmpty());
+        } finally {
+            pricingContextImpl.setNumberOfPets(2);
+        }
+
+        Flux<?> allowed = (Flux<?>) pricingPlanAwareAspect.validatePricingPlan(joinPoint,
+                pricingPlanAware("maxPets", false));
+
+        assertEquals(Arrays.asList("First", "Second"), allowed.collectList().block());
+    }
+
+    private void mockReturnType(Class<?> returnType) {
+        MethodSignature signature = Mockito.mock(MethodSignature.class);
+        Mockito.when(signature.getReturnType()).thenReturn(returnType);
+        Mockito.when(joinPoint.getSignature()).thenReturn(signature);
+    }
+
     @Test
     void differentServerEvaluationTest() throws Throwable {
 
@@ -175,17 +555,7 @@ public class PricingPlanAwareTests {
         // Obtener el valor del parámetro featureId que deseas probar
         String featureId = "maxPets";
 
-        pricingPlanAwareAspect.validatePricingPlan(joinPoint, new PricingPlanAware() {
-            @Override
-            public Class<? extends java.lang.annotation.Annotation> annotationType() {
-                return PricingPlanAware.class;
-            }
-
-            @Override
-            public String featureName() {
-                return featureId;
-            }
-        });
+        pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, false));
 
         String token = pricingEvaluatorUtil.generateUserToken();
 
@@ -203,17 +573,7 @@ public class PricingPlanAwareTests {
         String featureId = "nonExistentFeature";
 
         PricingPlanEvaluationException exception = assertThrows(PricingPlanEvaluationException.class, () -> {
-            pricingPlanAwareAspect.validatePricingPlan(joinPoint, new PricingPlanAware() {
-                @Override
-                public Class<? extends java.lang.annotation.Annotation> annotationType() {
-                    return PricingPlanAware.class;
-                }
-
-                @Override
-                public String featureName() {
-                    return featureId;
-                }
-            });
+            pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, false));
         });
 
         assertEquals("The feature " + featureId + " does not exist in the current pricing configuration",
@@ -231,17 +591,7 @@ public class PricingPlanAwareTests {
         String featureId = "nonExistentFeature";
 
         FilepathException exception = assertThrows(FilepathException.class, () -> {
-            pricingPlanAwareAspect.validatePricingPlan(joinPoint, new PricingPlanAware() {
-                @Override
-                public Class<? extends java.lang.annotation.Annotation> annotationType() {
-                    return PricingPlanAware.class;
-                }
-
-                @Override
-                public String featureName() {
-                    return featureId;
-                }
-            });
+            pricingPlanAwareAspect.validatePricingPlan(joinPoint, pricingPlanAware(featureId, false));
         });
 
         assertEquals("Either the file path is invalid or the file does not exist.", exception.getMessage());
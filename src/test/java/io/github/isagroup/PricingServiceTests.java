@@ -11,6 +11,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 import io.github.isagroup.exceptions.CloneUsageLimitException;
 import io.github.isagroup.exceptions.FeatureNotFoundException;
 import io.github.isagroup.exceptions.InvalidDefaultValueException;
+import io.github.isagroup.exceptions.PricingPlanEvaluationException;
 import io.github.isagroup.models.AddOn;
 import io.github.isagroup.models.Feature;
 import io.github.isagroup.models.Plan;
@@ -701,6 +703,22 @@ class PricingServiceTests {
         assertFalse(pricingManager.getPlans().get("PRO").getFeatures().containsKey(featureName));
     }
 
+    @Test
+    @Order(195)
+    void givenRequiredFeatureShouldNotRemoveIt() {
+
+        pricingContextTestImpl.requireFeatures(Arrays.asList(TEST_NUMERIC_FEATURE));
+
+        assertThrows(PricingPlanEvaluationException.class,
+                () -> pricingService.removeFeatureFromConfiguration(TEST_NUMERIC_FEATURE));
+
+        PricingManager pricingManager = YamlUtils.retrieveManagerFromYaml(pricingContextTestImpl.getConfigFilePath());
+
+        assertTrue(pricingManager.getFeatures().containsKey(TEST_NUMERIC_FEATURE),
+                "The configuration should not be written");
+        assertTrue(pricingContextTestImpl.getPricingManager().getFeatures().containsKey(TEST_NUMERIC_FEATURE));
+    }
+
     @Test
     @Order(200)
     void givenNonExistentFeatureShouldThroWhenDeleting() {
@@ -1,11 +1,23 @@
 package io.github.isagroup;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
 
 import io.github.isagroup.exceptions.FilepathException;
 import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.yaml.YamlEventLoader;
 import io.github.isagroup.services.yaml.YamlUtils;
 
 public class YamlUtilsTests {
@@ -21,4 +33,38 @@ public class YamlUtilsTests {
         assertThrows(FilepathException.class, () -> YamlUtils.writeYaml(pricingManager, null));
     }
 
+    @Test
+    void givenBundledPricingsEventLoaderShouldMatchYamlLoad() throws IOException {
+
+        try (DirectoryStream<Path> pricings = Files.newDirectoryStream(YamlUtils.resolveConfigPath("pricing"),
+                "*.yml")) {
+            for (Path pricing : pricings) {
+                Object expected = new Yaml().load(new String(Files.readAllBytes(pricing), StandardCharsets.UTF_8));
+
+                try (InputStream input = Files.newInputStream(pricing)) {
+                    assertEquals(expected, YamlEventLoader.load(input),
+                            "The document loaded from " + pricing + " should be the same");
+                }
+            }
+        }
+    }
+
+    @Test
+    void givenAnchorsAndMergeKeysEventLoaderShouldMatchYamlLoad() {
+
+        String document = "base: &base\n  value: 1\n  unit: pet\nplans:\n  - <<: *base\n    value: 2\n"
+                + "  - *base\nday: 2024-01-01\nprice: 1.5\nenabled: yes\nempty: ~\n";
+
+        assertEquals(new Yaml().load(document),
+                YamlEventLoader.load(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void givenSeveralDocumentsEventLoaderShouldThrowYamlException() {
+
+        String document = "a: 1\n---\nb: 2\n";
+
+        assertThrows(YAMLException.class,
+                () -> YamlEventLoader.load(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8))));
+    }
 }
@@ -0,0 +1,113 @@
+package io.github.isagroup.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.expression.Expression;
+
+import io.github.isagroup.PricingContextTestImpl;
+import io.github.isagroup.models.Feature;
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.models.PlanContextManager;
+import io.github.isagroup.services.evaluation.EvaluationMode;
+import io.github.isagroup.services.evaluation.PricingExpression;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+
+/**
+ * Compares interpreted and compiled SpEL evaluation of the feature expressions
+ * of the bundled pricings with their native evaluation. Only the pricings that
+ * define non-empty expressions are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionEvaluationBenchmark {
+
+    @Param({ "yaml-testing/petclinic.yml", "pricing/petclinic.yml" })
+    private String configFilePath;
+
+    @Param({ "INTERPRETED", "COMPILED" })
+    private EvaluationMode evaluationMode;
+
+    private final List<Expression> expressions = new ArrayList<>();
+    private final List<PricingExpression> pricingExpressions = new ArrayList<>();
+
+    private PlanContextManager planContextManager;
+
+    @Setup
+    public void setUp() {
+
+        PricingSnapshot snapshot = PricingSnapshot.load(configFilePath, evaluationMode);
+
+        Map<String, Object> userContext = new HashMap<>();
+        userContext.put("username", "admin1");
+        userContext.put("pets", 2);
+
+        PricingContextTestImpl pricingContext = new PricingContextTestImpl();
+        pricingContext.setConfigFilePath(configFilePath);
+        pricingContext.setUserContext(userContext);
+        pricingContext.setUserPlan(snapshot.getPricingManager().getPlanNames().get(0));
+
+        planContextManager = new PlanContextManager();
+        planContextManager.setUserContext(userContext);
+        planContextManager.setPlanContext(pricingContext.getPlanContext());
+
+        for (Feature feature : snapshot.getPricingManager().getFeatures().values()) {
+            addExpression(snapshot, feature.getExpression());
+            addExpression(snapshot, feature.getServerExpression());
+        }
+    }
+
+    @Benchmark
+    public void evaluateFeatureExpressions(Blackhole blackhole) {
+        for (Expression expression : expressions) {
+            blackhole.consume(FeatureStatus.computeFeatureEvaluation(expression, planContextManager));
+        }
+    }
+
+    @Benchmark
+    public void evaluatePricingExpressions(Blackhole blackhole) {
+        for (PricingExpression expression : pricingExpressions) {
+            blackhole.consume(FeatureStatus.computeFeatureEvaluation(expression, planContextManager));
+        }
+    }
+
+    private void addExpression(PricingSnapshot snapshot, String expressionText) {
+        Expression expression = snapshot.getExpressions().getExpression(expressionText);
+
+        if (expression != null) {
+            expressions.add(expression);
+            pricingExpressions.add(snapshot.getExpressions().getPricingExpression(expressionText));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ExpressionEvaluationBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.isagroup.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.isagroup.models.Feature;
+import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.yaml.YamlUtils;
+
+/**
+ * Measures the copies of the global features made for each plan while
+ * parsing a pricing, compared with the serialized copies they replaced and
+ * with parsing the whole pricing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureCopyBenchmark {
+
+    @Param({ "pricing/petclinic.yml", "pricing/github.yml", "pricing/wrike.yml", "pricing/salescloud.yml" })
+    private String configFilePath;
+
+    private List<Feature> features;
+    private int planCount;
+
+    @Setup
+    public void setUp() {
+        PricingManager pricingManager = YamlUtils.retrieveManagerFromYaml(configFilePath);
+        features = new ArrayList<>(pricingManager.getFeatures().values());
+        planCount = pricingManager.getPlans() == null ? 0 : pricingManager.getPlans().size();
+    }
+
+    @Benchmark
+    public List<Feature> copyPlanFeatures() {
+
+        List<Feature> copies = new ArrayList<>(features.size() * planCount);
+
+        for (int i = 0; i < planCount; i++) {
+            for (Feature feature : features) {
+                copies.add(feature.copy());
+            }
+        }
+
+        return copies;
+    }
+
+    @Benchmark
+    public List<Feature> serializePlanFeatures() throws IOException, ClassNotFoundException {
+
+        List<Feature> copies = new ArrayList<>(features.size() * planCount);
+
+        for (int i = 0; i < planCount; i++) {
+            for (Feature feature : features) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+                try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                    output.writeObject(feature);
+                }
+
+                try (ObjectInputStream input = new ObjectInputStream(
+                        new ByteArrayInputStream(bytes.toByteArray()))) {
+                    copies.add((Feature) input.readObject());
+                }
+            }
+        }
+
+        return copies;
+    }
+
+    @Benchmark
+    public PricingManager retrieveManagerFromYaml() {
+        return YamlUtils.retrieveManagerFromYaml(configFilePath);
+    }
+}
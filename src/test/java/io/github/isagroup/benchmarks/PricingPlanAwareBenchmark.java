@@ -0,0 +1,128 @@
+package io.github.isagroup.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.isagroup.PricingContextTestImpl;
+import io.github.isagroup.annotations.PricingPlanAware;
+import io.github.isagroup.annotations.PricingPlanAwareAspect;
+import io.github.isagroup.exceptions.PricingPlanEvaluationException;
+
+/**
+ * Measures the overhead {@link PricingPlanAwareAspect} adds to an annotated
+ * method, compared with calling the method directly, and the work saved on
+ * denied calls by evaluating the feature before the method runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingPlanAwareBenchmark {
+
+    public static class PetService {
+
+        private int pets;
+
+        @PricingPlanAware(featureName = "maxPets")
+        public int addPet() {
+            return ++pets;
+        }
+    }
+
+    public static class ExpensivePetService {
+
+        // Stands for the work of a business method, such as its database writes
+        private static final long WORK_TOKENS = 10_000;
+
+        @PricingPlanAware(featureName = "maxPets")
+        public long addPetCheckedAfter() {
+            Blackhole.consumeCPU(WORK_TOKENS);
+            return WORK_TOKENS;
+        }
+
+        @PricingPlanAware(featureName = "maxPets", evaluateBeforeProceed = true)
+        public long addPetCheckedBefore() {
+            Blackhole.consumeCPU(WORK_TOKENS);
+            return WORK_TOKENS;
+        }
+    }
+
+    private PetService petService;
+    private PetService advisedPetService;
+    private ExpensivePetService deniedPetService;
+
+    @Setup
+    public void setUp() {
+
+        petService = new PetService();
+        advisedPetService = advise(new PetService(), 2);
+        deniedPetService = advise(new ExpensivePetService(), 16);
+    }
+
+    private static <T> T advise(T target, int pets) {
+
+        Map<String, Object> userContext = new HashMap<>();
+        userContext.put("username", "admin1");
+        userContext.put("pets", pets);
+
+        PricingContextTestImpl pricingContext = new PricingContextTestImpl();
+        pricingContext.setConfigFilePath("yaml-testing/petclinic.yml");
+        pricingContext.setJwtSecret("secret");
+        pricingContext.setUserContext(userContext);
+        pricingContext.setUserPlan("ADVANCED");
+
+        PricingPlanAwareAspect aspect = new PricingPlanAwareAspect();
+        ReflectionTestUtils.setField(aspect, "pricingContext", pricingContext);
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+
+        return proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public int plainMethod() {
+        return petService.addPet();
+    }
+
+    @Benchmark
+    public int pricingPlanAwareMethod() {
+        return advisedPetService.addPet();
+    }
+
+    @Benchmark
+    public Object deniedMethodCheckedAfter() {
+        try {
+            return deniedPetService.addPetCheckedAfter();
+        } catch (PricingPlanEvaluationException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object deniedMethodCheckedBefore() {
+        try {
+            return deniedPetService.addPetCheckedBefore();
+        } catch (PricingPlanEvaluationException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.isagroup.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.isagroup.PricingContextTestImpl;
+import io.github.isagroup.PricingEvaluatorUtil;
+import io.github.isagroup.services.jwt.PricingJwtSigner;
+import io.github.isagroup.services.jwt.PricingJwtUtils;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+/**
+ * Measures generation of the pricing token and reading its claims back. The
+ * sign and verify benchmarks compare plain jjwt, which derives the key on
+ * each call, with the cached keys and parsers of {@link PricingJwtSigner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBenchmark {
+
+    private static final String SECRET = "secret";
+
+    @Param({ "yaml-testing/petclinic.yml", "pricing/github.yml", "pricing/wrike.yml" })
+    private String configFilePath;
+
+    private PricingEvaluatorUtil pricingEvaluatorUtil;
+    private PricingJwtUtils jwtUtils;
+    private String token;
+    private Map<String, Object> claims;
+
+    @Setup
+    public void setUp() {
+
+        Map<String, Object> userContext = new HashMap<>();
+        userContext.put("username", "admin1");
+        userContext.put("pets", 2);
+
+        PricingContextTestImpl pricingContext = new PricingContextTestImpl();
+        pricingContext.setConfigFilePath(configFilePath);
+        pricingContext.setJwtSecret(SECRET);
+        pricingContext.setJwtExpiration(86400000);
+        pricingContext.setUserContext(userContext);
+        pricingContext.setUserPlan(pricingContext.getPricingManager().getPlanNames().get(0));
+
+        pricingEvaluatorUtil = new PricingEvaluatorUtil(pricingContext);
+        jwtUtils = new PricingJwtUtils(pricingContext);
+        token = pricingEvaluatorUtil.generateUserToken();
+        claims = new HashMap<>(jwtUtils.parseToken(token).getClaims());
+    }
+
+    @Benchmark
+    public String generateUserToken() {
+        return pricingEvaluatorUtil.generateUserToken();
+    }
+
+    @Benchmark
+    public void readTokenClaims(Blackhole blackhole) {
+        blackhole.consume(jwtUtils.getSubjectFromJwtToken(token));
+        blackhole.consume(jwtUtils.getFeaturesFromJwtToken(token));
+        blackhole.consume(jwtUtils.getPlanContextFromJwtToken(token));
+        blackhole.consume(jwtUtils.getUserContextFromJwtToken(token));
+    }
+
+    @Benchmark
+    public String signWithSecret() {
+        return Jwts.builder().setClaims(claims).signWith(SignatureAlgorithm.HS512, SECRET).compact();
+    }
+
+    @Benchmark
+    public String signWithCachedKey() {
+        return PricingJwtSigner.builder(SECRET).setClaims(claims).compact();
+    }
+
+    @Benchmark
+    public Object verifyWithSecret() {
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Object verifyWithCachedKey() {
+        return PricingJwtSigner.parseClaims(SECRET, token);
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.isagroup.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yaml.snakeyaml.Yaml;
+
+import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.yaml.YamlEventLoader;
+import io.github.isagroup.services.yaml.YamlUtils;
+
+/**
+ * Measures parsing of each of the bundled pricings. The load benchmarks compare
+ * building the document tree with {@link Yaml#load(String)}, as it used to be
+ * done, and with {@link YamlEventLoader}; run them with the GC profiler to
+ * compare their allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YamlParsingBenchmark {
+
+    @Param({ "pricing/canva.yml", "pricing/clockify.yml", "pricing/figma.yml", "pricing/github.yml",
+            "pricing/jira.yml", "pricing/microsoftEnterprise.yml", "pricing/monday.yml", "pricing/navetor.yml",
+            "pricing/one-feature-pricing.yml", "pricing/overleaf.yml", "pricing/petclinic.yml",
+            "pricing/pipedrive.yml", "pricing/postman.yml", "pricing/rapidAPI.yml", "pricing/rippling.yml",
+            "pricing/salescloud.yml", "pricing/terminator.yml", "pricing/wrike.yml" })
+    private String configFilePath;
+
+    @Benchmark
+    public PricingManager retrieveManagerFromYaml() {
+        return YamlUtils.retrieveManagerFromYaml(configFilePath);
+    }
+
+    @Benchmark
+    public Object loadDocumentWithYaml() throws IOException {
+        Path path = YamlUtils.resolveConfigPath(configFilePath);
+        return new Yaml().load(new String(Files.readAllBytes(path)));
+    }
+
+    @Benchmark
+    public Object loadDocumentFromEvents() throws IOException {
+        try (InputStream input = Files.newInputStream(YamlUtils.resolveConfigPath(configFilePath))) {
+            return YamlEventLoader.load(input);
+        }
+    }
+}
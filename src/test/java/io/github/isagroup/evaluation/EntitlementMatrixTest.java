@@ -0,0 +1,41 @@
+package io.github.isagroup.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.isagroup.services.evaluation.EntitlementMatrix;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+
+public class EntitlementMatrixTest {
+
+    private static final String PETCLINIC_CONFIG_PATH = "yaml-testing/petclinic.yml";
+
+    @Test
+    void givenPlanOnlyExpressionsShouldPrecomputeThemPerPlan() {
+
+        EntitlementMatrix entitlements = PricingSnapshot.load(PETCLINIC_CONFIG_PATH).getEntitlements();
+
+        assertEquals(true, entitlements.getStaticEvaluation("ADVANCED", "haveCalendar"));
+        assertEquals(false, entitlements.getStaticEvaluation("ADVANCED", "havePetsDashboard"));
+        assertEquals(true, entitlements.getStaticEvaluation("PRO", "havePetsDashboard"));
+    }
+
+    @Test
+    void givenUserDependentExpressionShouldNotPrecomputeIt() {
+
+        EntitlementMatrix entitlements = PricingSnapshot.load(PETCLINIC_CONFIG_PATH).getEntitlements();
+
+        assertNull(entitlements.getStaticEvaluation("ADVANCED", "maxPets"));
+    }
+
+    @Test
+    void givenUnknownPlanOrFeatureShouldNotHavePrecomputedEvaluation() {
+
+        EntitlementMatrix entitlements = PricingSnapshot.load(PETCLINIC_CONFIG_PATH).getEntitlements();
+
+        assertNull(entitlements.getStaticEvaluation("ENTERPRISE", "haveCalendar"));
+        assertNull(entitlements.getStaticEvaluation("ADVANCED", "notDefined"));
+    }
+}
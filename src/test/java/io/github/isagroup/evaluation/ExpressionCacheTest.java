@@ -0,0 +1,91 @@
+package io.github.isagroup.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+
+import io.github.isagroup.PricingContextTestImpl;
+import io.github.isagroup.models.Feature;
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.models.PlanContextManager;
+import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.evaluation.EvaluationMode;
+import io.github.isagroup.services.evaluation.ExpressionCache;
+import io.github.isagroup.services.yaml.YamlUtils;
+
+public class ExpressionCacheTest {
+
+    private static final String PETCLINIC_CONFIG_PATH = "yaml-testing/petclinic.yml";
+
+    @Test
+    void givenPricingShouldReuseParsedExpressions() {
+
+        PricingManager pricingManager = YamlUtils.retrieveManagerFromYaml(PETCLINIC_CONFIG_PATH);
+        ExpressionCache cache = ExpressionCache.of(pricingManager);
+
+        String expression = pricingManager.getFeatures().get("maxPets").getExpression();
+        Expression parsedExpression = cache.getExpression(expression);
+
+        assertNotNull(parsedExpression);
+        assertSame(parsedExpression, cache.getExpression(new String(expression)),
+                "Expressions with the same text should be parsed only once");
+    }
+
+    @Test
+    void givenBlankExpressionShouldReturnNull() {
+
+        ExpressionCache cache = ExpressionCache.of(null);
+
+        assertNull(cache.getExpression(null));
+        assertNull(cache.getExpression("  "));
+    }
+
+    @Test
+    void givenInvalidExpressionShouldThrowOnLookup() {
+
+        ExpressionCache cache = ExpressionCache.of(null);
+
+        assertThrows(ParseException.class, () -> cache.getExpression("userContext['pets'] <"));
+    }
+
+    @Test
+    void givenCompiledModeShouldEvaluateLikeInterpretedMode() {
+
+        PricingManager pricingManager = YamlUtils.retrieveManagerFromYaml(PETCLINIC_CONFIG_PATH);
+        ExpressionCache interpreted = ExpressionCache.of(pricingManager, EvaluationMode.INTERPRETED);
+        ExpressionCache compiled = ExpressionCache.of(pricingManager, EvaluationMode.COMPILED);
+
+        Map<String, Object> userContext = new HashMap<>();
+        userContext.put("pets", 3);
+
+        PricingContextTestImpl pricingContext = new PricingContextTestImpl();
+        pricingContext.setConfigFilePath(PETCLINIC_CONFIG_PATH);
+        pricingContext.setUserContext(userContext);
+        pricingContext.setUserPlan("ADVANCED");
+
+        PlanContextManager planContextManager = new PlanContextManager();
+        planContextManager.setUserContext(userContext);
+        planContextManager.setPlanContext(pricingContext.getPlanContext());
+
+        // Enough evaluations for the compiler to kick in
+        for (int i = 0; i < 300; i++) {
+            for (Feature feature : pricingManager.getFeatures().values()) {
+                assertEquals(
+                        FeatureStatus.computeFeatureEvaluation(interpreted.getExpression(feature.getExpression()),
+                                planContextManager),
+                        FeatureStatus.computeFeatureEvaluation(compiled.getExpression(feature.getExpression()),
+                                planContextManager),
+                        "Compiled evaluation of " + feature.getName() + " differs from the interpreted one");
+            }
+        }
+    }
+}
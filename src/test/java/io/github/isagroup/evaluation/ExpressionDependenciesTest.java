@@ -0,0 +1,77 @@
+package io.github.isagroup.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.isagroup.services.evaluation.ExpressionCache;
+import io.github.isagroup.services.evaluation.ExpressionDependencies;
+
+public class ExpressionDependenciesTest {
+
+    private final ExpressionCache cache = ExpressionCache.of(null);
+
+    @Test
+    void givenUsageLimitExpressionShouldFindUsedKeyAndLimit() {
+
+        ExpressionDependencies dependencies = cache
+                .getDependencies("userContext['pets'] < planContext['usageLimits']['maxPets']");
+
+        assertTrue(dependencies.isAnalyzed());
+        assertEquals(Collections.singleton("pets"), dependencies.getUserContextKeys());
+        assertEquals(Collections.singleton("maxPets"), dependencies.getUsageLimits());
+        assertTrue(dependencies.getPlanFeatures().isEmpty());
+        assertEquals("pets", dependencies.getUsedKey());
+        assertEquals("maxPets", dependencies.getUsageLimitName());
+    }
+
+    @Test
+    void givenPlanFeatureExpressionShouldNotHaveUsage() {
+
+        ExpressionDependencies dependencies = cache.getDependencies("planContext['features']['haveCalendar']");
+
+        assertEquals(Collections.singleton("haveCalendar"), dependencies.getPlanFeatures());
+        assertTrue(dependencies.getUserContextKeys().isEmpty());
+        assertNull(dependencies.getUsedKey());
+        assertNull(dependencies.getUsageLimitName());
+    }
+
+    @Test
+    void givenSeveralKeysShouldFindUsageOfTheUserContextComparison() {
+
+        ExpressionDependencies dependencies = cache.getDependencies(
+                "planContext['features']['haveVisits'] && planContext['usageLimits']['maxVisits'] > userContext['visits']"
+                        + " || userContext['isAdmin']");
+
+        assertEquals(new HashSet<>(Arrays.asList("visits", "isAdmin")), dependencies.getUserContextKeys());
+        assertEquals(Collections.singleton("haveVisits"), dependencies.getPlanFeatures());
+        assertEquals("visits", dependencies.getUsedKey());
+        assertEquals("maxVisits", dependencies.getUsageLimitName());
+    }
+
+    @Test
+    void givenSpelOnlyExpressionShouldFindUsedKeyFromText() {
+
+        ExpressionDependencies dependencies = cache
+                .getDependencies("userContext['pets'] < planContext['usageLimits']['maxPets'] and true");
+
+        assertFalse(dependencies.isAnalyzed());
+        assertEquals("pets", dependencies.getUsedKey());
+        assertEquals("maxPets", dependencies.getUsageLimitName());
+    }
+
+    @Test
+    void givenBlankExpressionShouldHaveNoDependencies() {
+
+        assertSame(ExpressionDependencies.NONE, cache.getDependencies(""));
+        assertSame(ExpressionDependencies.NONE, cache.getDependencies(null));
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.isagroup.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.expression.EvaluationException;
+
+import io.github.isagroup.models.FeatureStatus;
+import io.github.isagroup.models.PlanContextManager;
+import io.github.isagroup.services.evaluation.ExpressionCache;
+
+public class PricingExpressionTest {
+
+    private final ExpressionCache cache = ExpressionCache.of(null);
+
+    private PlanContextManager planContextManager() {
+
+        Map<String, Object> userContext = new HashMap<>();
+        userContext.put("pets", 3);
+        userContext.put("visits", 10L);
+        userContext.put("username", "admin1");
+        userContext.put("isAdmin", true);
+
+        Map<String, Object> features = new HashMap<>();
+        features.put("haveCalendar", true);
+        features.put("havePetsDashboard", false);
+
+        Map<String, Object> usageLimits = new HashMap<>();
+        usageLimits.put("maxPets", 4);
+        usageLimits.put("maxVisits", 2.5);
+
+        Map<String, Object> planContext = new HashMap<>();
+        planContext.put("features", features);
+        planContext.put("usageLimits", usageLimits);
+        planContext.put("maxPets", 2);
+        planContext.put("description", "Basic plan");
+
+        PlanContextManager planContextManager = new PlanContextManager();
+        planContextManager.setUserContext(userContext);
+        planContextManager.setPlanContext(planContext);
+        return planContextManager;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "userContext['pets'] < planContext['usageLimits']['maxPets']",
+            "userContext['pets'] <= planContext['maxPets']",
+            "userContext['visits'] > planContext['usageLimits']['maxVisits']",
+            "userContext['visits'] >= 10",
+            "planContext['features']['haveCalendar']",
+            "planContext['features']['havePetsDashboard'] || userContext['isAdmin']",
+            "planContext['features']['haveCalendar'] && !(userContext['pets'] > 5)",
+            "planContext['features']['notDefined']",
+            "userContext['username'] == 'admin1' && userContext[\"pets\"] != 2",
+            "userContext['username'] == 3",
+            "userContext['notDefined'] == null",
+            "3 == 3.0",
+            "!false",
+            "userContext['username'] < 'b'",
+            "userContext['notDefined'] < 3",
+            "userContext['pets'] lt 4 and true",
+            "userContext['pets'] + 1 < planContext['usageLimits']['maxPets']"
+    })
+    void givenExpressionShouldEvaluateLikeSpel(String expression) {
+
+        PlanContextManager planContextManager = planContextManager();
+
+        assertEquals(FeatureStatus.computeFeatureEvaluation(cache.getExpression(expression), planContextManager),
+                FeatureStatus.computeFeatureEvaluation(cache.getPricingExpression(expression), planContextManager),
+                "Evaluation of " + expression + " differs from SpEL");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "planContext['features']['notDefined'] && true",
+            "planContext['notDefined']['maxPets'] > 1",
+            "!userContext['notDefined']"
+    })
+    void givenExpressionSpelCannotEvaluateShouldThrow(String expression) {
+
+        PlanContextManager planContextManager = planContextManager();
+
+        assertThrows(EvaluationException.class,
+                () -> FeatureStatus.computeFeatureEvaluation(cache.getExpression(expression), planContextManager));
+        assertThrows(EvaluationException.class,
+                () -> FeatureStatus.computeFeatureEvaluation(cache.getPricingExpression(expression),
+                        planContextManager));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "  " })
+    void givenBlankExpressionShouldEvaluateToFalse(String expression) {
+
+        assertEquals(Optional.of(false),
+                FeatureStatus.computeFeatureEvaluation(cache.getPricingExpression(expression), planContextManager()));
+    }
+}
@@ -1,12 +1,14 @@
 package io.github.isagroup.parsing;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
 import io.github.isagroup.exceptions.PricingParsingException;
+import io.github.isagroup.models.Feature;
 import io.github.isagroup.models.Plan;
 import io.github.isagroup.models.PricingManager;
 import io.github.isagroup.services.yaml.YamlUtils;
@@ -29,6 +31,23 @@ public class PricingManagerParserTest {
 
     }
 
+    @Test
+    void givenPetclinicPlansShouldHaveIndependentFeatures() {
+
+        PricingManager pricingManager = YamlUtils.retrieveManagerFromYaml("pricing/petclinic.yml");
+
+        Feature globalFeature = pricingManager.getFeatures().get("haveCalendar");
+        Feature basicFeature = pricingManager.getPlans().get("BASIC").getFeatures().get("haveCalendar");
+        Feature advancedFeature = pricingManager.getPlans().get("ADVANCED").getFeatures().get("haveCalendar");
+
+        assertNotSame(globalFeature, basicFeature, "Plans should not share the global feature");
+        assertNotSame(basicFeature, advancedFeature, "Plans should not share their features");
+        assertEquals(globalFeature, basicFeature, "The copy should have the attributes of the global feature");
+        assertEquals(true, advancedFeature.getValue(), "The value of haveCalendar in ADVANCED should be true");
+        assertEquals(null, basicFeature.getValue(), "The value of haveCalendar in BASIC should be null");
+
+    }
+
     @Test
     void givenNullSaasNameShouldThrowParsingException() {
         assertThrows(PricingParsingException.class,
@@ -0,0 +1,56 @@
+package io.github.isagroup.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.isagroup.models.PricingManager;
+import io.github.isagroup.services.snapshot.FrozenPricing;
+import io.github.isagroup.services.snapshot.PricingSnapshot;
+
+public class FrozenPricingTest {
+
+    private static final String PETCLINIC_CONFIG_PATH = "yaml-testing/petclinic.yml";
+
+    @Test
+    void givenConfigurationShouldNumberFeaturesInOrder() {
+
+        PricingSnapshot snapshot = PricingSnapshot.load(PETCLINIC_CONFIG_PATH);
+        PricingManager pricingManager = snapshot.getPricingManager();
+        FrozenPricing frozenPricing = snapshot.getFrozenPricing();
+
+        assertEquals(new ArrayList<>(pricingManager.getFeatures().keySet()), frozenPricing.getFeatureNames());
+        assertEquals(new ArrayList<>(pricingManager.getUsageLimits().keySet()), frozenPricing.getUsageLimitNames());
+
+        for (String featureName : frozenPricing.getFeatureNames()) {
+            int ordinal = frozenPricing.getFeatureOrdinal(featureName);
+
+            assertEquals(featureName, frozenPricing.getFeatureNames().get(ordinal));
+            assertEquals(pricingManager.getFeatures().get(featureName).getValueType(),
+                    frozenPricing.getFeatureValueType(ordinal),
+                    "Value type of " + featureName + " should be the one of its definition");
+        }
+    }
+
+    @Test
+    void givenUsageLimitShouldKeepItsValueType() {
+
+        PricingSnapshot snapshot = PricingSnapshot.load(PETCLINIC_CONFIG_PATH);
+        FrozenPricing frozenPricing = snapshot.getFrozenPricing();
+        int maxPets = frozenPricing.getUsageLimitOrdinal("maxPets");
+
+        assertEquals(snapshot.getPricingManager().getUsageLimits().get("maxPets").getValueType(),
+                frozenPricing.getUsageLimitValueType(maxPets));
+    }
+
+    @Test
+    void givenUnknownNamesShouldNotResolveThem() {
+
+        FrozenPricing frozenPricing = PricingSnapshot.load(PETCLINIC_CONFIG_PATH).getFrozenPricing();
+
+        assertEquals(-1, frozenPricing.getFeatureOrdinal("notDefined"));
+        assertEquals(-1, frozenPricing.getUsageLimitOrdinal("notDefined"));
+    }
+}